@@ -0,0 +1,65 @@
+package org.microhttp.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByteTokenizerBenchmark {
+
+    @Param({"4", "32"})
+    int headerCount;
+
+    @Param({"16", "512", "4096"})
+    int fragmentSize;
+
+    byte[][] headFragments;
+    byte[][] bodyFragments;
+    int bodySize;
+
+    @Setup
+    public void setup() {
+        headFragments = Fixtures.fragment(Fixtures.contentLengthResponse(headerCount, 0), fragmentSize);
+        bodySize = 64 * 1024;
+        bodyFragments = Fixtures.fragment(Fixtures.body(bodySize), fragmentSize);
+    }
+
+    @Benchmark
+    public void nextDelimiter(Blackhole bh) {
+        var bt = new ByteTokenizer();
+        for (var fragment : headFragments) {
+            bt.add(fragment);
+            byte[] token;
+            while ((token = bt.next(Fixtures.CRLF)) != null) {
+                bh.consume(token);
+            }
+        }
+    }
+
+    @Benchmark
+    public void nextAmount(Blackhole bh) {
+        var bt = new ByteTokenizer();
+        for (var fragment : bodyFragments) {
+            bt.add(fragment);
+            bh.consume(bt.next(fragmentSize / 2));
+        }
+        bh.consume(bt.next(bt.available()));
+    }
+
+}
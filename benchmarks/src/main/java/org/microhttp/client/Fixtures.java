@@ -0,0 +1,71 @@
+package org.microhttp.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class Fixtures {
+
+    static final byte[] CRLF = "\r\n".getBytes();
+
+    static List<Header> headers(int count) {
+        var headers = new ArrayList<Header>();
+        headers.add(new Header("Date", "Wed, 17 May 2023 16:07:46 GMT"));
+        headers.add(new Header("Content-Type", "application/json; charset=utf-8"));
+        for (int i = headers.size(); i < count; i++) {
+            headers.add(new Header("X-Custom-Header-" + i, "value-" + i + "-abcdefghijklmnopqrstuvwxyz0123456789"));
+        }
+        return headers;
+    }
+
+    static byte[] body(int size) {
+        var body = new byte[size];
+        for (int i = 0; i < size; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        return body;
+    }
+
+    static byte[] contentLengthResponse(int headerCount, int bodySize) {
+        var sb = new StringBuilder("HTTP/1.1 200 OK\r\n");
+        for (var h : headers(headerCount)) {
+            sb.append(h.name()).append(": ").append(h.value()).append("\r\n");
+        }
+        sb.append("Content-Length: ").append(bodySize).append("\r\n\r\n");
+        var merger = new ByteMerger();
+        merger.add(sb.toString().getBytes());
+        merger.add(body(bodySize));
+        return merger.merge();
+    }
+
+    static byte[] chunkedResponse(int headerCount, int bodySize, int chunkSize) {
+        var sb = new StringBuilder("HTTP/1.1 200 OK\r\n");
+        for (var h : headers(headerCount)) {
+            sb.append(h.name()).append(": ").append(h.value()).append("\r\n");
+        }
+        sb.append("Transfer-Encoding: chunked\r\n\r\n");
+        var merger = new ByteMerger();
+        merger.add(sb.toString().getBytes());
+        var body = body(bodySize);
+        for (int offset = 0; offset < body.length; offset += chunkSize) {
+            var len = Math.min(chunkSize, body.length - offset);
+            merger.add(Integer.toHexString(len).getBytes());
+            merger.add(CRLF);
+            merger.add(Arrays.copyOfRange(body, offset, offset + len));
+            merger.add(CRLF);
+        }
+        merger.add("0\r\n\r\n".getBytes());
+        return merger.merge();
+    }
+
+    static byte[][] fragment(byte[] data, int fragmentSize) {
+        var count = (data.length + fragmentSize - 1) / fragmentSize;
+        var fragments = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            var from = i * fragmentSize;
+            fragments[i] = Arrays.copyOfRange(data, from, Math.min(from + fragmentSize, data.length));
+        }
+        return fragments;
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.microhttp.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackBenchmark {
+
+    @Param({"4", "32"})
+    int headerCount;
+
+    @Param({"128", "65536"})
+    int bodySize;
+
+    @Param({"content-length", "chunked"})
+    String framing;
+
+    @Param({"4096"})
+    int bufferSize;
+
+    LoopbackServer server;
+    ConnectionPool pool;
+    HttpClient client;
+    Request request;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var response = framing.equals("chunked")
+                ? Fixtures.chunkedResponse(headerCount, bodySize, 8_192)
+                : Fixtures.contentLengthResponse(headerCount, bodySize);
+        server = new LoopbackServer(response);
+        pool = new ConnectionPool(
+                SocketFactory.getDefault(),
+                null,
+                server.address(),
+                1_000,
+                5_000,
+                60_000,
+                1_000,
+                r -> {
+                    var t = new Thread(r, "loopback-evict");
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.start();
+        client = new HttpClient(bufferSize);
+        request = new Request(
+                "GET",
+                "/benchmark",
+                List.of(new Header("Host", "localhost"), new Header("Accept", "*/*")),
+                new byte[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public Response send() throws IOException {
+        var connection = pool.borrow();
+        try {
+            return client.send(connection, request);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+}
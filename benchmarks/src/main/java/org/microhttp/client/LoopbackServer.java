@@ -0,0 +1,71 @@
+package org.microhttp.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+class LoopbackServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final byte[] response;
+
+    LoopbackServer(byte[] response) throws IOException {
+        this.response = response;
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1_024);
+        var thread = new Thread(this::acceptLoop, "loopback-accept");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    HostPort address() {
+        return new HostPort(InetAddress.getLoopbackAddress().getHostAddress(), serverSocket.getLocalPort());
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                var thread = new Thread(() -> serve(socket), "loopback-conn");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            while (readRequestHead(is)) {
+                os.write(response);
+            }
+        } catch (IOException ignore) {}
+    }
+
+    private static boolean readRequestHead(InputStream is) throws IOException {
+        // requests carry no body, so the head ends at the first empty line
+        int matched = 0;
+        int b;
+        while ((b = is.read()) >= 0) {
+            matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : (b == '\r' ? 1 : 0);
+            if (matched == 4) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+}
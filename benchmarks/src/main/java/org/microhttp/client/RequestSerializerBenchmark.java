@@ -0,0 +1,62 @@
+package org.microhttp.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestSerializerBenchmark {
+
+    @Param({"4", "32"})
+    int headerCount;
+
+    @Param({"0", "1024", "65536"})
+    int bodySize;
+
+    Request request;
+    Request templated;
+    byte[] scratch;
+    ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        request = new Request("POST", "/api/v1/resources/12345?expand=true", Fixtures.headers(headerCount), Fixtures.body(bodySize));
+        var template = new RequestTemplate("POST", Fixtures.headers(headerCount));
+        templated = template.request("/api/v1/resources/12345?expand=true", List.of(), RequestBody.of(Fixtures.body(bodySize)));
+        scratch = new byte[4_096];
+        out = new ByteArrayOutputStream();
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        out.reset();
+        RequestSerializer.write(request, out, null, scratch);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeTemplate() throws IOException {
+        out.reset();
+        RequestSerializer.write(templated, out, null, scratch);
+        return out.size();
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.microhttp.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParserBenchmark {
+
+    @Param({"4", "32"})
+    int headerCount;
+
+    @Param({"0", "1024", "65536"})
+    int bodySize;
+
+    @Param({"content-length", "chunked"})
+    String framing;
+
+    @Param({"16", "512", "4096"})
+    int fragmentSize;
+
+    byte[][] fragments;
+
+    @Setup
+    public void setup() {
+        var response = framing.equals("chunked")
+                ? Fixtures.chunkedResponse(headerCount, bodySize, 8_192)
+                : Fixtures.contentLengthResponse(headerCount, bodySize);
+        fragments = Fixtures.fragment(response, fragmentSize);
+    }
+
+    @Benchmark
+    public Response parse() {
+        // mirrors HttpClient.send: add each read to the tokenizer, then attempt to parse
+        var bt = new ByteTokenizer();
+        var rp = new ResponseParser(bt);
+        for (var fragment : fragments) {
+            bt.add(fragment);
+            if (rp.parse()) {
+                break;
+            }
+        }
+        return rp.response();
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.microhttp.client;
+
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Issues one request per virtual thread through HttpClient.sendAsync and counts carrier pinning via JFR.
+// Requires Java 21 or later:
+//     java -cp target/benchmarks.jar org.microhttp.client.VirtualThreadLoadTest [requests] [connections]
+public class VirtualThreadLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        var requests = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        var connections = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        if (!VirtualThreads.isSupported()) {
+            System.err.println("virtual threads require Java 21 or later");
+            System.exit(2);
+        }
+        var pinned = new AtomicLong();
+        try (var server = new LoopbackServer(Fixtures.contentLengthResponse(4, 128));
+             var events = new RecordingStream()) {
+            events.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            events.onEvent("jdk.VirtualThreadPinned", e -> {
+                if (pinned.getAndIncrement() == 0) {
+                    System.err.println(e);
+                }
+            });
+            events.startAsync();
+
+            var pool = new ConnectionPool(PoolConfig.builder()
+                    .remoteAddress(server.address())
+                    .connectTimeout(5_000)
+                    .socketTimeout(30_000)
+                    .idleTimeout(60_000)
+                    .evictPollPeriod(1_000)
+                    .maxConnections(connections, 60_000, false) // bounds open sockets, all requests are still in flight on their own virtual threads
+                    .threadFactory(VirtualThreads.threadFactory())
+                    .build());
+            pool.start();
+            var client = new HttpClient(4_096);
+            var request = new Request("GET", "/load", List.of(new Header("Host", "localhost")), new byte[0]);
+
+            var virtual = VirtualThreads.newThreadPerTaskExecutor();
+
+            var start = System.nanoTime();
+            var futures = new CompletableFuture<?>[requests];
+            for (int i = 0; i < requests; i++) {
+                futures[i] = client.sendAsync(pool, request, virtual);
+            }
+            var failures = 0;
+            for (var future : futures) {
+                try {
+                    future.join();
+                } catch (RuntimeException e) {
+                    failures++;
+                }
+            }
+            var elapsed = System.nanoTime() - start;
+            virtual.shutdown();
+            events.close();
+
+            System.out.printf("requests: %d, failures: %d, elapsed: %d ms, throughput: %.0f req/s%n",
+                    requests,
+                    failures,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    requests / (elapsed / 1e9));
+            System.out.printf("pinned events: %d, pool waits: %d, pool wait time: %d ms%n",
+                    pinned.get(),
+                    pool.waits(),
+                    TimeUnit.NANOSECONDS.toMillis(pool.waitTimeNanos()));
+            System.exit(failures == 0 && pinned.get() == 0 ? 0 : 1);
+        }
+    }
+
+}
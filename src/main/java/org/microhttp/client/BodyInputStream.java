@@ -0,0 +1,108 @@
+package org.microhttp.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+class BodyInputStream extends InputStream {
+
+    private final Connection connection;
+    private final ConnectionPool pool;
+    private final ResponseParser parser;
+    private final BufferPool bufferPool;
+    private final int maxDrain;
+
+    private boolean released;
+    private boolean closed;
+
+    BodyInputStream(Connection connection, ConnectionPool pool, ResponseParser parser, BufferPool bufferPool, int maxDrain) {
+        this.connection = connection;
+        this.pool = pool;
+        this.parser = parser;
+        this.bufferPool = bufferPool;
+        this.maxDrain = maxDrain;
+        if (parser.isDone()) { // no body, connection can be reused right away
+            release();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (released) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        try {
+            int n;
+            while ((n = parser.readBody(b, off, len)) == 0) {
+                if (connection.tokenizer().read(connection.socket().getInputStream(), bufferPool) < 0
+                        && !parser.endOfInput()) {
+                    throw new EOFException();
+                }
+            }
+            if (n < 0) {
+                release();
+            }
+            return n;
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof IOException io) {
+                connection.failed(io);
+            }
+            discard();
+            throw e;
+        }
+    }
+
+    // closing before the end of the body reads through a short remainder to keep the connection,
+    // otherwise discards it, unread bytes would corrupt the next response
+    @Override
+    public void close() {
+        if (!released && !drain()) {
+            discard();
+        }
+        closed = true;
+    }
+
+    // a known remainder within the limit, or a chunked body ending within it, leaves the connection reusable
+    private boolean drain() {
+        var remaining = parser.remaining();
+        if (!connection.keepAlive() || remaining > maxDrain) {
+            return false;
+        }
+        var skip = new byte[Math.max(1, Math.min(maxDrain, 8_192))];
+        var budget = (long) maxDrain;
+        try {
+            int n;
+            while (budget >= 0 && (n = read(skip, 0, (int) Math.min(skip.length, budget + 1))) >= 0) {
+                budget -= n;
+            }
+            return released;
+        } catch (IOException e) {
+            return true; // read has discarded the connection already
+        }
+    }
+
+    private void release() {
+        released = true;
+        pool.release(connection);
+    }
+
+    private void discard() {
+        connection.tryClose();
+        release();
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.microhttp.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+class BufferPool {
+
+    private final int bufferSize;
+    private final Slab<byte[]> slab;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    BufferPool(int bufferSize, int capacity) {
+        this.bufferSize = bufferSize;
+        slab = new Slab<>(capacity);
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    long hits() {
+        return hits.longValue();
+    }
+
+    long misses() {
+        return misses.longValue();
+    }
+
+    byte[] acquire() {
+        var buffer = slab.poll();
+        if (buffer != null) {
+            hits.increment();
+            return buffer;
+        }
+        misses.increment();
+        return new byte[bufferSize];
+    }
+
+    // buffers of another size, or beyond capacity, are left to the garbage collector
+    void release(byte[] buffer) {
+        if (buffer.length == bufferSize) {
+            slab.offer(buffer);
+        }
+    }
+
+}
@@ -1,143 +1,278 @@
 package org.microhttp.client;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 class ByteTokenizer {
 
-    private final List<byte[]> buffers = new ArrayList<>();
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    private final List<Segment> buffers = new ArrayList<>();
+
+    // cursor, position of the next unconsumed byte within the retained buffers
+    private int bufferIndex;
+    private int byteIndex;
+    private int count;
 
-    private final Iterator cursor = new Iterator(0, 0);
     private int size;
+    private long received; // lifetime total, survives release
+
+    // resume point of the last unsuccessful delimiter scan
+    private byte[] scanDelimiter;
+    private int scanBufferIndex;
+    private int scanByteIndex;
+    private int scanCount;
 
     int size() {
         return size;
     }
 
+    long received() {
+        return received;
+    }
+
     int available() {
-        return size - cursor.count;
+        return size - count;
     }
 
     void add(byte[] buffer) {
-        buffers.add(buffer);
+        buffers.add(new Segment(buffer, buffer.length, null));
         size += buffer.length;
     }
 
+    // reads directly into the free tail of the last pooled buffer, or into a fresh one taken from the pool
+    int read(InputStream in, BufferPool pool) throws IOException {
+        var tail = writableTail(pool);
+        return filled(tail, in.read(tail.array, tail.limit, tail.array.length - tail.limit));
+    }
+
+    int read(ReadableByteChannel channel, BufferPool pool) throws IOException {
+        var tail = writableTail(pool);
+        return filled(tail, channel.read(ByteBuffer.wrap(tail.array, tail.limit, tail.array.length - tail.limit)));
+    }
+
+    private Segment writableTail(BufferPool pool) {
+        var tail = buffers.isEmpty() ? null : buffers.get(buffers.size() - 1);
+        if (tail == null || tail.pool != pool || tail.limit == tail.array.length) {
+            tail = new Segment(pool.acquire(), 0, pool);
+            buffers.add(tail);
+        }
+        return tail;
+    }
+
+    private int filled(Segment tail, int n) {
+        if (n > 0) {
+            tail.limit += n;
+            size += n;
+            received += n;
+        } else if (tail.limit == 0) { // fresh buffer received nothing, hand it straight back
+            buffers.remove(buffers.size() - 1);
+            tail.release();
+        }
+        return n;
+    }
+
+    // returns all retained buffers to their pools, discarding unconsumed bytes
+    void release() {
+        for (var segment : buffers) {
+            segment.release();
+        }
+        buffers.clear();
+        bufferIndex = 0;
+        byteIndex = 0;
+        count = 0;
+        size = 0;
+        scanDelimiter = null;
+    }
+
     byte[] next(byte[] delimiter) {
-        var it = find(cursor.copy(), delimiter);
-        if (it == null) {
+        var length = find(delimiter);
+        if (length < 0) {
             return null;
         }
-        var bytes = fastCopy(it);
-        it.next(delimiter.length);
-        cursor.add(it);
+        var bytes = new byte[length];
+        copy(bytes, 0, length);
+        advance(delimiter.length);
+        compact();
         return bytes;
     }
 
     byte[] next(int amount) {
-        if (size - cursor.count < amount) {
+        if (size - count < amount) {
             return null;
         }
-        var it = cursor.copy();
-        it.next(amount);
-        var bytes = fastCopy(it);
-        cursor.add(it);
+        var bytes = new byte[amount];
+        copy(bytes, 0, amount);
+        compact();
         return bytes;
     }
 
-    private byte[] fastCopy(Iterator it) {
-        var bytes = new byte[it.count];
-        var dstPos = 0;
-        for (int i = cursor.bufferIndex; i <= it.bufferIndex; i++) {
-            if (i < buffers.size()) { // last buffer may be over the edge
-                var buf = buffers.get(i);
-                var srcStart = i == cursor.bufferIndex ? cursor.byteIndex : 0;
-                var srcEnd = i == it.bufferIndex ? it.byteIndex : buf.length;
-                var len = srcEnd - srcStart;
-                if (len > 0) {
-                    System.arraycopy(buf, srcStart, bytes, dstPos, len); // intrinsic candidate
-                }
-                dstPos += len;
-            }
-        }
-        return bytes;
+    // transfers up to length available bytes, allowing large bodies to be drained as they arrive
+    int next(byte[] dst, int offset, int length) {
+        var amount = Math.min(length, size - count);
+        copy(dst, offset, amount);
+        compact();
+        return amount;
     }
 
-    private Iterator find(Iterator it, byte[] pattern) {
-        while (it.hasNext()) {
-            var match = matches(it.copy(), pattern);
-            if (match) {
-                return it;
-            }
-            it.next();
+    void skip(int amount) {
+        advance(amount);
+        compact();
+    }
+
+    private void copy(byte[] dst, int offset, int length) {
+        var end = offset + length;
+        while (offset < end) {
+            var buf = buffers.get(bufferIndex);
+            var len = Math.min(buf.limit - byteIndex, end - offset);
+            System.arraycopy(buf.array, byteIndex, dst, offset, len); // intrinsic candidate
+            offset += len;
+            byteIndex += len;
+            normalize();
         }
-        return null;
+        count += length;
+        scanDelimiter = null;
     }
 
-    private boolean matches(Iterator it, byte[] pattern) {
-        while (it.hasNext() && it.count < pattern.length) {
-            if (pattern[it.count] != it.next()) {
-                return false;
-            }
+    private void advance(int amount) {
+        while (amount > 0) {
+            var len = Math.min(buffers.get(bufferIndex).limit - byteIndex, amount);
+            byteIndex += len;
+            amount -= len;
+            normalize();
+            count += len;
         }
-        return it.count == pattern.length;
+        scanDelimiter = null;
     }
 
-    private class Iterator {
-        int bufferIndex;
-        int byteIndex;
-        int count;
-        byte[] buffer;
+    // drops buffers behind the cursor so a long-lived tokenizer only retains unconsumed bytes
+    private void compact() {
+        normalize();
+        if (bufferIndex == 0) {
+            return;
+        }
+        var released = 0;
+        for (int i = 0; i < bufferIndex; i++) {
+            var segment = buffers.get(i);
+            released += segment.limit;
+            segment.release();
+        }
+        buffers.subList(0, bufferIndex).clear();
+        bufferIndex = 0;
+        size -= released;
+        count -= released;
+    }
 
-        Iterator(int bufferIndex, int byteIndex) {
-            this.bufferIndex = bufferIndex;
-            this.byteIndex = byteIndex;
-            setBuffer();
+    private void normalize() {
+        while (bufferIndex < buffers.size() && byteIndex == buffers.get(bufferIndex).limit) {
+            bufferIndex++;
+            byteIndex = 0;
         }
+    }
 
-        Iterator copy() {
-            return new Iterator(bufferIndex, byteIndex);
+    // returns the number of bytes between the cursor and the delimiter, or -1 if not found
+    int find(byte[] delimiter) {
+        int bi, i, base;
+        if (scanDelimiter == delimiter) { // resume where the last scan for this delimiter gave up
+            bi = scanBufferIndex;
+            i = scanByteIndex;
+            base = scanCount - scanByteIndex;
+        } else {
+            normalize();
+            bi = bufferIndex;
+            i = byteIndex;
+            base = count - byteIndex;
+        }
+        var first = delimiter[0];
+        for (; bi < buffers.size(); bi++, i = 0) {
+            var buf = buffers.get(bi);
+            while ((i = indexOf(buf.array, i, buf.limit, first)) >= 0) {
+                var match = matchesAt(bi, i + 1, delimiter);
+                if (match > 0) {
+                    return base + i - count;
+                }
+                if (match < 0) { // partial match at the edge, rescan from here once more data arrives
+                    remember(delimiter, bi, i, base + i);
+                    return -1;
+                }
+                i++;
+            }
+            if (bi == buffers.size() - 1) { // tail may still grow in place, resume at its current limit
+                remember(delimiter, bi, buf.limit, base + buf.limit);
+                return -1;
+            }
+            base += buf.limit;
         }
+        remember(delimiter, bi, 0, base);
+        return -1;
+    }
+
+    private void remember(byte[] delimiter, int bufferIndex, int byteIndex, int count) {
+        scanDelimiter = delimiter;
+        scanBufferIndex = bufferIndex;
+        scanByteIndex = byteIndex;
+        scanCount = count;
+    }
 
-        void add(Iterator it) {
-            bufferIndex = it.bufferIndex;
-            byteIndex = it.byteIndex;
-            count += it.count;
+    // compares the delimiter tail against the bytes at the given position: 1 match, 0 mismatch, -1 insufficient data
+    private int matchesAt(int bi, int i, byte[] delimiter) {
+        for (int d = 1; d < delimiter.length; d++, i++) {
+            while (bi < buffers.size() && i == buffers.get(bi).limit) {
+                bi++;
+                i = 0;
+            }
+            if (bi == buffers.size()) {
+                return -1;
+            }
+            if (buffers.get(bi).array[i] != delimiter[d]) {
+                return 0;
+            }
         }
+        return 1;
+    }
 
-        void setBuffer() {
-            this.buffer = bufferIndex < buffers.size()
-                    ? buffers.get(bufferIndex)
-                    : null;
+    // SWAR search, eight bytes per step
+    static int indexOf(byte[] buf, int from, int to, byte b) {
+        var i = from;
+        var pattern = (b & 0xFFL) * ONES;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            var word = (long) LONGS.get(buf, i) ^ pattern;
+            var found = (word - ONES) & ~word & HIGHS;
+            if (found != 0) { // lowest flagged byte is always a true match
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
         }
+        for (; i < to; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        boolean hasNext() {
-            return bufferIndex < buffers.size();
+    private static class Segment {
+        final byte[] array;
+        final BufferPool pool;
+        int limit;
+
+        Segment(byte[] array, int limit, BufferPool pool) {
+            this.array = array;
+            this.limit = limit;
+            this.pool = pool;
         }
 
-        byte next() {
-            var b = buffer[byteIndex++];
-            if (byteIndex == buffer.length) {
-                bufferIndex++;
-                byteIndex = 0;
-                setBuffer();
-            }
-            count++;
-            return b;
-        }
-
-        void next(int amount) {
-            while (amount > 0) {
-                var remaining = buffer.length - byteIndex;
-                var len = Math.min(remaining, amount);
-                amount -= len;
-                byteIndex += len;
-                count += len;
-                if (byteIndex == buffer.length) {
-                    bufferIndex++;
-                    byteIndex = 0;
-                    setBuffer();
-                }
+        void release() {
+            if (pool != null) {
+                pool.release(array);
             }
         }
     }
@@ -0,0 +1,117 @@
+package org.microhttp.client;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// expired answers keep being served for up to staleTtl while a refresh runs on the executor
+public class CachingResolver implements Resolver {
+
+    private final Resolver delegate;
+    private final long ttl;
+    private final long negativeTtl;
+    private final long staleTtl;
+    private final Executor executor;
+    private final Map<String, Entry> cache;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder staleHits;
+    private final LongAdder refreshFailures;
+
+    // all durations in millis
+    public CachingResolver(Resolver delegate, int ttl, int negativeTtl, int staleTtl, Executor executor) {
+        this.delegate = delegate;
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.negativeTtl = TimeUnit.MILLISECONDS.toNanos(negativeTtl);
+        this.staleTtl = TimeUnit.MILLISECONDS.toNanos(staleTtl);
+        this.executor = executor;
+        cache = new ConcurrentHashMap<>();
+        hits = new LongAdder();
+        misses = new LongAdder();
+        staleHits = new LongAdder();
+        refreshFailures = new LongAdder();
+    }
+
+    public long hits() {
+        return hits.longValue();
+    }
+
+    public long misses() {
+        return misses.longValue();
+    }
+
+    // hits answered from an expired entry, a subset of hits
+    public long staleHits() {
+        return staleHits.longValue();
+    }
+
+    public long refreshFailures() {
+        return refreshFailures.longValue();
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        var entry = cache.get(host);
+        var now = System.nanoTime();
+        if (entry != null && now - entry.expires < 0) {
+            hits.increment();
+            return entry.get();
+        }
+        if (entry != null && entry.addresses != null && now - entry.expires < staleTtl) {
+            hits.increment();
+            staleHits.increment();
+            if (entry.refreshing.compareAndSet(false, true)) {
+                executor.execute(() -> refresh(host, entry));
+            }
+            return entry.get();
+        }
+        misses.increment();
+        return load(host).get();
+    }
+
+    private void refresh(String host, Entry stale) {
+        try {
+            cache.replace(host, stale, new Entry(delegate.resolve(host), null, System.nanoTime() + ttl));
+        } catch (UnknownHostException | RuntimeException e) {
+            refreshFailures.increment(); // keep serving the stale answer until it ages out
+            stale.refreshing.set(false);
+        }
+    }
+
+    private Entry load(String host) {
+        Entry entry;
+        try {
+            entry = new Entry(delegate.resolve(host), null, System.nanoTime() + ttl);
+        } catch (UnknownHostException e) {
+            entry = new Entry(null, e, System.nanoTime() + negativeTtl);
+        }
+        cache.put(host, entry);
+        return entry;
+    }
+
+    private static class Entry {
+        final InetAddress[] addresses;
+        final UnknownHostException failure;
+        final long expires;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(InetAddress[] addresses, UnknownHostException failure, long expires) {
+            this.addresses = addresses;
+            this.failure = failure;
+            this.expires = expires;
+        }
+
+        InetAddress[] get() throws UnknownHostException {
+            if (failure != null) { // fresh instance, callers may add suppressed exceptions
+                throw new UnknownHostException(failure.getMessage());
+            }
+            return addresses.clone(); // callers may reorder their copy
+        }
+    }
+
+}
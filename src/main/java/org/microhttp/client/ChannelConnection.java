@@ -0,0 +1,57 @@
+package org.microhttp.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+
+// non-blocking counterpart of Connection, confined to the thread of its event loop
+class ChannelConnection {
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteTokenizer tokenizer;
+    final long createTime;
+
+    boolean connected;
+    long lastActivity;
+
+    // in-flight exchange, null while idle
+    ByteBuffer request;
+    ResponseParser parser;
+    CompletableFuture<Response> future;
+
+    ChannelConnection(SocketChannel channel, SelectionKey key, boolean connected, long now) {
+        this.channel = channel;
+        this.key = key;
+        this.connected = connected;
+        tokenizer = new ByteTokenizer();
+        createTime = now;
+        lastActivity = now;
+    }
+
+    void start(ByteBuffer request, boolean head, CompletableFuture<Response> future, long now) {
+        this.request = request;
+        this.future = future;
+        parser = new ResponseParser(tokenizer, head);
+        lastActivity = now;
+    }
+
+    CompletableFuture<Response> finish() {
+        var f = future;
+        request = null;
+        parser = null;
+        future = null;
+        return f;
+    }
+
+    void close() {
+        key.cancel();
+        tokenizer.release();
+        try {
+            channel.close();
+        } catch (IOException ignore) {}
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.microhttp.client;
+
+// HttpClient settings, named rather than positional so new options do not add constructors
+public final class ClientConfig {
+
+    private final int bufferSize;
+    private final int bufferPoolCapacity;
+    private final ClientListener listener;
+    private final ContentDecoder decoder;
+    private final ContentEncoder encoder;
+    private final int maxDrain;
+
+    private ClientConfig(Builder b) {
+        bufferSize = b.bufferSize;
+        bufferPoolCapacity = b.bufferPoolCapacity;
+        listener = b.listener;
+        decoder = b.decoder;
+        encoder = b.encoder;
+        maxDrain = b.maxDrain;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    int bufferPoolCapacity() {
+        return bufferPoolCapacity;
+    }
+
+    ClientListener listener() {
+        return listener;
+    }
+
+    ContentDecoder decoder() {
+        return decoder;
+    }
+
+    ContentEncoder encoder() {
+        return encoder;
+    }
+
+    int maxDrain() {
+        return maxDrain;
+    }
+
+    public static final class Builder {
+
+        private int bufferSize = 8_192;
+        private int bufferPoolCapacity = 256;
+        private ClientListener listener = ClientListener.NOOP;
+        private ContentDecoder decoder;
+        private ContentEncoder encoder;
+        private int maxDrain = 64 * 1_024;
+
+        private Builder() {}
+
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder bufferPoolCapacity(int bufferPoolCapacity) {
+            this.bufferPoolCapacity = bufferPoolCapacity;
+            return this;
+        }
+
+        public Builder listener(ClientListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        // requests offer gzip and deflate and encoded bodies are decoded transparently, null leaves bodies as received
+        public Builder decoder(ContentDecoder decoder) {
+            this.decoder = decoder;
+            return this;
+        }
+
+        // request bodies at or above the encoder's threshold are sent gzipped, null sends them as given
+        public Builder encoder(ContentEncoder encoder) {
+            this.encoder = encoder;
+            return this;
+        }
+
+        // a body stream closed early is drained to its end when at most maxDrain bytes remain, otherwise discarded
+        public Builder maxDrain(int maxDrain) {
+            this.maxDrain = maxDrain;
+            return this;
+        }
+
+        public ClientConfig build() {
+            return new ClientConfig(this);
+        }
+    }
+
+}
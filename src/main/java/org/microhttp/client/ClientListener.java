@@ -0,0 +1,34 @@
+package org.microhttp.client;
+
+import java.io.IOException;
+
+// callbacks run on the thread doing the work and must not block, durations are nanos
+public interface ClientListener {
+
+    // pool and client skip the clock entirely when handed this instance
+    ClientListener NOOP = new ClientListener() {};
+
+    // borrower found the pool at its connection limit
+    default void poolWait(HostPort remoteAddress, long nanos) {}
+
+    default void connected(HostPort remoteAddress, long nanos) {}
+
+    default void handshake(HostPort remoteAddress, long nanos, boolean resumed) {}
+
+    // idle connection closed for idle timeout, max lifetime or failed validation
+    default void evicted(Connection connection) {}
+
+    default void requestWritten(Connection connection, long bytes, long nanos) {}
+
+    // from request written to the first response bytes, zero when they were already buffered
+    default void firstByte(Connection connection, long nanos) {}
+
+    // from request written to the parsed response head
+    default void headersParsed(Connection connection, int status, long nanos) {}
+
+    // from request start to the complete response
+    default void responseReceived(Connection connection, int status, long bodyBytes, long nanos) {}
+
+    default void failed(Connection connection, IOException e) {}
+
+}
@@ -3,30 +3,126 @@ package org.microhttp.client;
 import java.io.IOException;
 import java.net.Socket;
 
-public record Connection(
-        HostPort localAddress,
-        HostPort remoteAddress,
-        Socket socket,
-        long createTime,
-        long lastUseTime,
-        int borrowCounter) {
+// pool-owned handle, bookkeeping is updated in place so borrow and release allocate nothing
+public final class Connection {
+
+    private final HostPort localAddress;
+    private final HostPort remoteAddress;
+    private final Socket socket;
+    private final ByteTokenizer tokenizer;
+    private final long createTime;
+
+    // written by the current holder only, the pool's idle deque publishes them to the next one
+    private long lastUseTime;
+    private int borrowCounter;
+    private long requests;
+    private long bytesOut;
+    private IOException lastError;
+    private boolean keepAlive = true;
 
     Connection(HostPort localAddress, HostPort remoteAddress, Socket socket) {
-        this(localAddress, remoteAddress, socket, System.nanoTime(), 0, 1);
+        this.localAddress = localAddress;
+        this.remoteAddress = remoteAddress;
+        this.socket = socket;
+        tokenizer = new ByteTokenizer();
+        createTime = System.nanoTime();
+        borrowCounter = 1;
+    }
+
+    public HostPort localAddress() {
+        return localAddress;
+    }
+
+    public HostPort remoteAddress() {
+        return remoteAddress;
+    }
+
+    public Socket socket() {
+        return socket;
+    }
+
+    ByteTokenizer tokenizer() {
+        return tokenizer;
+    }
+
+    public long createTime() {
+        return createTime;
+    }
+
+    public long lastUseTime() {
+        return lastUseTime;
+    }
+
+    public int borrowCounter() {
+        return borrowCounter;
+    }
+
+    public long requests() {
+        return requests;
+    }
+
+    public long bytesIn() {
+        return tokenizer.received();
+    }
+
+    public long bytesOut() {
+        return bytesOut;
+    }
+
+    public IOException lastError() {
+        return lastError;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(localAddress, remoteAddress, createTime, lastUseTime, borrowCounter, requests, bytesIn(),
+                bytesOut, lastError);
     }
 
     Connection use() {
-        return new Connection(localAddress, remoteAddress, socket, createTime, System.nanoTime(), borrowCounter);
+        lastUseTime = System.nanoTime();
+        return this;
     }
 
     Connection borrow() {
-        return new Connection(localAddress, remoteAddress, socket, createTime, lastUseTime, borrowCounter + 1);
+        borrowCounter++;
+        return this;
+    }
+
+    void sent(long bytes) {
+        requests++;
+        bytesOut += bytes;
+    }
+
+    void failed(IOException e) {
+        lastError = e;
+    }
+
+    // set when the response ends the persistent connection, the pool closes it on release
+    void closeAfterUse() {
+        keepAlive = false;
+    }
+
+    boolean keepAlive() {
+        return keepAlive;
     }
 
     void tryClose() {
+        tokenizer.release(); // return pooled read buffers
         try {
             socket.close();
         } catch (IOException ignore) {}
     }
 
+    public record Snapshot(
+            HostPort localAddress,
+            HostPort remoteAddress,
+            long createTime,
+            long lastUseTime,
+            int borrowCounter,
+            long requests,
+            long bytesIn,
+            long bytesOut,
+            IOException lastError) {
+    }
+
 }
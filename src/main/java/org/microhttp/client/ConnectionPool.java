@@ -3,24 +3,58 @@ package org.microhttp.client;
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocket;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.net.SocketTimeoutException;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 
 class ConnectionPool {
 
+    private static final long CANCEL_POLL = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Resolver resolver;
     private final SocketFactory socketFactory;
+    private final TlsConfig tls;
     private final HostPort localAddress;
     private final HostPort remoteAddress;
     private final int connectTimeout;
     private final int socketTimeout;
-    private final int idleTimeout;
+    private final long idleTimeout; // all durations below in nanos
+    private final long maxLifetime;
+    private final long validateAfterInactivity;
     private final int evictPollPeriod;
+    private final int maxWait;
+    private final boolean fair;
+    private final int minIdle;
+    private final int maxConnections;
+    private final ClientListener listener;
+    private final boolean timed; // false for the no-op listener, keeps the clock off the hot path
     private final ThreadFactory threadFactory;
-    private final ReentrantLock lock;
-    private final Queue<Connection> connections;
+    private final Semaphore permits; // one per borrowed connection, null when unbounded
+    private final Semaphore sharedPermits; // open connections across pools, idle ones included, null when unbounded
+    private final BooleanSupplier reclaim; // closes an idle connection of some pool sharing the cap, false if none
+    private final Deque<Connection>[] stripes;
+    private final LongAdder waits;
+    private final LongAdder waitTime;
+    private final LongAdder timeouts;
+    private final LongAdder steals;
+    private final LongAdder borrows;
+    private final LongAdder releases;
+    private final LongAdder topUps;
+    private final LongAdder evictions;
+    private final LongAdder staleDiscards;
+    private final LongAdder reuses;
+    private final LongAdder discards;
+
+    private volatile boolean closed;
+    private Thread evictionThread;
 
     public ConnectionPool(
             SocketFactory socketFactory,
@@ -31,60 +65,446 @@ class ConnectionPool {
             int idleTimeout,
             int evictPollPeriod,
             ThreadFactory threadFactory) {
-        this.socketFactory = socketFactory;
-        this.localAddress = localAddress;
-        this.remoteAddress = remoteAddress;
-        this.connectTimeout = connectTimeout;
-        this.socketTimeout = socketTimeout;
-        this.idleTimeout = idleTimeout;
-        this.evictPollPeriod = evictPollPeriod;
-        this.threadFactory = threadFactory;
-        lock = new ReentrantLock();
-        connections = new LinkedList<>();
+        this(PoolConfig.builder()
+                .socketFactory(socketFactory)
+                .localAddress(localAddress)
+                .remoteAddress(remoteAddress)
+                .connectTimeout(connectTimeout)
+                .socketTimeout(socketTimeout)
+                .idleTimeout(idleTimeout)
+                .evictPollPeriod(evictPollPeriod)
+                .threadFactory(threadFactory)
+                .build());
+    }
+
+    public ConnectionPool(PoolConfig config) {
+        this(config, null, null);
+    }
+
+    // sharedPermits caps open connections across the pools given it, reclaim frees one of their idle connections
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ConnectionPool(PoolConfig config, Semaphore sharedPermits, BooleanSupplier reclaim) {
+        this.resolver = config.resolver();
+        this.socketFactory = config.socketFactory();
+        this.tls = config.tls();
+        this.localAddress = config.localAddress();
+        this.remoteAddress = config.remoteAddress();
+        this.connectTimeout = config.connectTimeout();
+        this.socketTimeout = config.socketTimeout();
+        this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(config.idleTimeout());
+        this.maxLifetime = TimeUnit.MILLISECONDS.toNanos(config.maxLifetime());
+        this.validateAfterInactivity = TimeUnit.MILLISECONDS.toNanos(config.validateAfterInactivity());
+        this.evictPollPeriod = config.evictPollPeriod();
+        this.maxWait = config.maxWait();
+        this.fair = config.fair();
+        this.minIdle = config.minIdle();
+        this.maxConnections = config.maxConnections();
+        this.listener = config.listener();
+        this.timed = listener != ClientListener.NOOP;
+        this.threadFactory = config.threadFactory();
+        this.sharedPermits = sharedPermits;
+        this.reclaim = reclaim;
+        permits = maxConnections > 0 ? new Semaphore(maxConnections, fair) : null;
+        stripes = new Deque[Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ConcurrentLinkedDeque<>();
+        }
+        waits = new LongAdder();
+        waitTime = new LongAdder();
+        timeouts = new LongAdder();
+        steals = new LongAdder();
+        borrows = new LongAdder();
+        releases = new LongAdder();
+        topUps = new LongAdder();
+        evictions = new LongAdder();
+        staleDiscards = new LongAdder();
+        reuses = new LongAdder();
+        discards = new LongAdder();
     }
 
     void start() {
-        threadFactory.newThread(this::runEvictionTask).start();
+        evictionThread = threadFactory.newThread(this::runEvictionTask);
+        evictionThread.start();
+    }
+
+    // stops eviction and closes idle connections, connections released later are closed rather than pooled
+    void close() {
+        closed = true;
+        if (evictionThread != null) {
+            evictionThread.interrupt();
+        }
+        for (var stripe : stripes) {
+            Connection c;
+            while ((c = stripe.pollFirst()) != null) {
+                drop(c);
+            }
+        }
+    }
+
+    // closes the least recently used idle connection to make room under the shared cap
+    boolean reclaimIdle() {
+        for (var stripe : stripes) {
+            var c = stripe.pollLast();
+            if (c != null) {
+                evict(c);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long borrows() {
+        return borrows.longValue();
+    }
+
+    // borrowed and not yet released, approximate under concurrent use
+    long leased() {
+        return borrows.longValue() - releases.longValue();
+    }
+
+    // connections opened by the eviction task to hold minIdle
+    long topUps() {
+        return topUps.longValue();
+    }
+
+    // idle connections closed for idle timeout or max lifetime
+    long evictions() {
+        return evictions.longValue();
+    }
+
+    // idle connections found closed by the peer when validated before reuse
+    long staleDiscards() {
+        return staleDiscards.longValue();
+    }
+
+    // released connections put back for reuse
+    long reuses() {
+        return reuses.longValue();
+    }
+
+    // released connections closed instead, after a failure, a closing response or an undrained body
+    long discards() {
+        return discards.longValue();
+    }
+
+    // borrowers that found the pool at its connection limit
+    long waits() {
+        return waits.longValue();
+    }
+
+    long waitTimeNanos() {
+        return waitTime.longValue();
+    }
+
+    long timeouts() {
+        return timeouts.longValue();
+    }
+
+    // idle connections taken from another thread's stripe
+    long steals() {
+        return steals.longValue();
+    }
+
+    int idle() {
+        var n = 0;
+        for (var stripe : stripes) {
+            n += stripe.size();
+        }
+        return n;
     }
 
     Connection borrow() throws IOException {
-        lock.lock();
+        return borrow(null);
+    }
+
+    // a request deadline, when given, bounds the pool wait and the connect and aborts them when it runs out
+    Connection borrow(Deadline deadline) throws IOException {
+        acquirePermits(deadline);
         try {
-            var c = connections.poll();
-            if (c != null) {
+            var c = pollReusable();
+            if (c == null) {
+                c = open(deadline);
+            }
+            borrows.increment();
+            return c;
+        } catch (IOException | RuntimeException e) {
+            releasePermits();
+            throw e;
+        }
+    }
+
+    private Connection pollReusable() {
+        Connection c;
+        while ((c = pollIdle()) != null) {
+            if (reusable(c, System.nanoTime())) {
                 return c.borrow();
             }
-        } finally {
-            lock.unlock();
+            drop(c);
+            listener.evicted(c);
+        }
+        return null;
+    }
+
+    // takes a shared permit for the new connection, it is returned when the pool drops the connection
+    private Connection open(Deadline deadline) throws IOException {
+        acquireShared(deadline);
+        try {
+            return new Connection(localAddress, remoteAddress, newSocket(deadline));
+        } catch (IOException | RuntimeException e) {
+            releaseShared();
+            throw e;
         }
-        return new Connection(localAddress, remoteAddress, newSocket());
     }
 
     void release(Connection connection) {
-        if (!connection.socket().isClosed()) { // discard closed connection, it can become unreachable
-            lock.lock();
+        try {
+            if (connection.socket().isClosed() || !connection.keepAlive()) { // closed ones can become unreachable
+                discards.increment();
+                drop(connection);
+                return;
+            }
+            var c = connection.use();
+            if (expired(c, c.lastUseTime())) {
+                evict(c);
+                return;
+            }
+            reuses.increment();
+            stripe().offerFirst(c);
+            if (closed) { // raced with close, do not strand the connection
+                close();
+            }
+        } finally {
+            releases.increment();
+            releasePermits();
+        }
+    }
+
+    // opens connections up front, handshake included, so early borrowers skip the connect, returns how many
+    int prewarm(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            if (!offerIdle(i)) {
+                return i; // pool or shared cap reached
+            }
+        }
+        return n;
+    }
+
+    // never waits for or reclaims a shared permit, so pools cannot take idle connections from each other,
+    // and stops at maxConnections open, borrowed included
+    private boolean offerIdle(int spread) throws IOException {
+        if (maxConnections > 0 && leased() + idle() >= maxConnections) {
+            return false;
+        }
+        if (!tryAcquire(sharedPermits)) {
+            return false;
+        }
+        Connection c;
+        try {
+            c = new Connection(localAddress, remoteAddress, newSocket(null));
+        } catch (IOException | RuntimeException e) {
+            releaseShared();
+            throw e;
+        }
+        stripes[spread & (stripes.length - 1)].offerFirst(c.use());
+        return true;
+    }
+
+    private void evict(Connection c) {
+        evictions.increment();
+        drop(c);
+        listener.evicted(c);
+    }
+
+    // every connection the pool opened ends here exactly once, returning its shared permit
+    private void drop(Connection c) {
+        c.tryClose();
+        releaseShared();
+    }
+
+    // maxLifetime <= 0 is unlimited
+    private boolean expired(Connection c, long now) {
+        return maxLifetime > 0 && now - c.createTime() > maxLifetime;
+    }
+
+    private boolean reusable(Connection c, long now) {
+        if (c.socket().isClosed()) { // aborted after it was pooled
+            return false;
+        }
+        if (expired(c, now)) {
+            evictions.increment();
+            return false;
+        }
+        if (validateAfterInactivity > 0 && now - c.lastUseTime() > validateAfterInactivity && stale(c)) {
+            staleDiscards.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // a peer that closed an idle connection leaves EOF or unsolicited bytes, either way the connection is unusable
+    private boolean stale(Connection c) {
+        var socket = c.socket();
+        if (socket.isInputShutdown() || c.tokenizer().available() > 0) {
+            return true;
+        }
+        try {
+            socket.setSoTimeout(1);
+            socket.getInputStream().read(); // returns only on EOF or unsolicited bytes
+            return true;
+        } catch (SocketTimeoutException e) {
+            return false; // nothing pending, peer still there
+        } catch (IOException e) {
+            return true;
+        } finally {
             try {
-                connections.add(connection.use());
-            } finally {
-                lock.unlock();
+                socket.setSoTimeout(socketTimeout);
+            } catch (IOException ignore) {}
+        }
+    }
+
+    private void acquirePermits(Deadline request) throws IOException {
+        if (!tryAcquire(permits)) {
+            await(permits, request);
+        }
+    }
+
+    // at the shared cap, an idle connection of any pool is closed before waiting for a busy one
+    private void acquireShared(Deadline request) throws IOException {
+        while (!tryAcquire(sharedPermits)) {
+            if (reclaim == null || !reclaim.getAsBoolean()) {
+                await(sharedPermits, request);
+                return;
+            }
+        }
+    }
+
+    private void await(Semaphore semaphore, Deadline request) throws IOException {
+        waits.increment();
+        var start = System.nanoTime();
+        var deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWait);
+        if (request != null && request.deadline() - deadline < 0) {
+            deadline = request.deadline();
+        }
+        try {
+            if (!acquire(semaphore, deadline, request)) {
+                throw timeout(start, request);
             }
+            var waited = System.nanoTime() - start;
+            waitTime.add(waited);
+            listener.poolWait(remoteAddress, waited);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for connection");
         }
     }
 
-    private Socket newSocket() throws IOException {
+    // with a request deadline the wait is sliced, so a cancellation ends it within one slice
+    private static boolean acquire(Semaphore semaphore, long deadline, Deadline request) throws InterruptedException {
+        if (semaphore == null) {
+            return true;
+        }
+        if (request == null) {
+            return semaphore.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        long remaining;
+        while (request.isActive() && (remaining = deadline - System.nanoTime()) > 0) {
+            if (semaphore.tryAcquire(Math.min(remaining, CANCEL_POLL), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the untimed tryAcquire barges ahead of queued waiters even on a fair semaphore, the timed form does not
+    private boolean tryAcquire(Semaphore semaphore) {
+        if (semaphore == null) {
+            return true;
+        }
+        if (!fair) {
+            return semaphore.tryAcquire();
+        }
+        try {
+            return semaphore.tryAcquire(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // the slow path reports it
+            return false;
+        }
+    }
+
+    private IOException timeout(long start, Deadline request) throws IOException {
+        waitTime.add(System.nanoTime() - start);
+        timeouts.increment();
+        if (request != null) {
+            request.check(); // cancelled, or the wheel already expired it
+        }
+        return new SocketTimeoutException("Pool wait timed out");
+    }
+
+    private void releasePermits() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private void releaseShared() {
+        if (sharedPermits != null) {
+            sharedPermits.release();
+        }
+    }
+
+    // most recently released connection from the caller's stripe, then from any other
+    private Connection pollIdle() {
+        var index = stripeIndex();
+        var c = stripes[index].pollFirst();
+        for (int i = 1; c == null && i < stripes.length; i++) {
+            c = stripes[(index + i) & (stripes.length - 1)].pollFirst();
+            if (c != null) {
+                steals.increment();
+            }
+        }
+        return c;
+    }
+
+    private Deque<Connection> stripe() {
+        return stripes[stripeIndex()];
+    }
+
+    private int stripeIndex() {
+        var hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (stripes.length - 1);
+    }
+
+    private Socket newSocket(Deadline deadline) throws IOException {
         var socket = socketFactory.createSocket();
-        socket.setSoTimeout(socketTimeout);
-        socket.bind(localAddress == null ? null : localAddress.toSocketAddress());
-        socket.connect(remoteAddress.toSocketAddress(), connectTimeout);
-        if (socket instanceof SSLSocket ss) {
-            ss.startHandshake(); // complete TLS handshake as part of init
+        try {
+            if (deadline != null) {
+                deadline.attach(socket); // closing it aborts the connect or handshake
+            }
+            socket.setSoTimeout(socketTimeout);
+            socket.bind(localAddress == null ? null : localAddress.toSocketAddress());
+            var address = resolver.resolve(remoteAddress.host())[0];
+            var start = timed ? System.nanoTime() : 0L;
+            var timeout = deadline == null ? connectTimeout : deadline.timeout(connectTimeout);
+            socket.connect(new InetSocketAddress(address, remoteAddress.port()), timeout);
+            if (timed) {
+                listener.connected(remoteAddress, System.nanoTime() - start);
+            }
+            if (tls != null) {
+                return tls.handshake(socket, remoteAddress, listener);
+            }
+            if (socket instanceof SSLSocket ss) {
+                ss.startHandshake(); // complete TLS handshake as part of init
+            }
+            return socket;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
         }
-        return socket;
     }
 
     private void runEvictionTask() {
         while (true) {
-            purgeExpired();
+            maintain();
             try {
                 Thread.sleep(evictPollPeriod);
             } catch (InterruptedException e) {
@@ -93,16 +513,34 @@ class ConnectionPool {
         }
     }
 
-    private void purgeExpired() {
-        lock.lock();
-        try {
+    void maintain() {
+        purgeExpired();
+        topUp();
+    }
+
+    // replaces evicted or closed idle connections in the background, a failed connect waits for the next round
+    private void topUp() {
+        for (int missing = minIdle - idle(); missing > 0 && !closed; missing--) {
+            try {
+                if (!offerIdle(missing)) {
+                    return;
+                }
+                topUps.increment();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    void purgeExpired() {
+        for (var stripe : stripes) {
             Connection c;
-            while ((c = connections.peek()) != null && System.nanoTime() > c.lastUseTime() + idleTimeout) {
-                connections.poll();
-                c.tryClose();
+            // stripes are ordered newest first, so the scan stops at the first connection used within idleTimeout
+            while ((c = stripe.peekLast()) != null && System.nanoTime() - c.lastUseTime() > idleTimeout) {
+                if (stripe.removeLastOccurrence(c)) { // lost races with borrowers are harmless
+                    evict(c);
+                }
             }
-        } finally {
-            lock.unlock();
         }
     }
 
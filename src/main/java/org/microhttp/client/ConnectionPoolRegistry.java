@@ -0,0 +1,112 @@
+package org.microhttp.client;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// pools created on first use per route, all evicted by one scheduler thread
+class ConnectionPoolRegistry implements AutoCloseable {
+
+    private final PoolConfig config;
+    private final TlsConfig tls;
+    private final int evictPollPeriod;
+    private final int poolIdleTimeout;
+    private final Semaphore permits; // open connections across routes, idle ones included, null when unbounded
+    private final ScheduledExecutorService scheduler;
+    private final Map<Route, Entry> pools;
+
+    // config holds the per-route settings, its maxConnections capping each route and its threadFactory, if any, running eviction,
+    // maxConnections <= 0 is unbounded, a pool with no traffic and no connections for poolIdleTimeout millis is dropped,
+    // https routes are served only with a TLS config, and the socket factory must produce plain sockets
+    ConnectionPoolRegistry(PoolConfig config, int maxConnections, int poolIdleTimeout) {
+        if (config.socketFactory() instanceof SSLSocketFactory) {
+            throw new IllegalArgumentException("TLS is configured through TlsConfig, not the socket factory");
+        }
+        this.config = config;
+        this.tls = config.tls();
+        this.evictPollPeriod = config.evictPollPeriod();
+        this.poolIdleTimeout = poolIdleTimeout;
+        permits = maxConnections > 0 ? new Semaphore(maxConnections, config.fair()) : null;
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                config.threadFactory() != null ? config.threadFactory() : Executors.defaultThreadFactory());
+        pools = new ConcurrentHashMap<>();
+    }
+
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::evict, evictPollPeriod, evictPollPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    int size() {
+        return pools.size();
+    }
+
+    // callers release to the pool they borrowed from, a dropped pool closes whatever comes back to it
+    ConnectionPool pool(Route route) {
+        if (route.secure() && tls == null) {
+            throw new IllegalArgumentException("no TLS config for route " + route);
+        }
+        return pools.computeIfAbsent(route, this::newEntry).pool;
+    }
+
+    private Entry newEntry(Route route) {
+        var routeConfig = config.toBuilder()
+                .tls(route.secure() ? tls : null)
+                .localAddress(route.localAddress())
+                .remoteAddress(route.remoteAddress())
+                .minIdle(0)
+                .threadFactory(null) // evicted by the registry scheduler
+                .build();
+        return new Entry(new ConnectionPool(routeConfig, permits, this::reclaim));
+    }
+
+    // at the global cap, one idle connection of any route makes room for a new one
+    private boolean reclaim() {
+        for (var entry : pools.values()) {
+            if (entry.pool.reclaimIdle()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void evict() {
+        var now = System.nanoTime();
+        for (var e : pools.entrySet()) {
+            var entry = e.getValue();
+            entry.pool.maintain();
+            var borrows = entry.pool.borrows();
+            if (borrows != entry.borrows || entry.pool.leased() > 0 || entry.pool.idle() > 0) {
+                entry.borrows = borrows;
+                entry.activeTime = now;
+            } else if (now - entry.activeTime > TimeUnit.MILLISECONDS.toNanos(poolIdleTimeout)
+                    && pools.remove(e.getKey(), entry)) {
+                entry.pool.close(); // late borrowers of the dropped pool see their connections closed on release
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (var entry : pools.values()) {
+            entry.pool.close();
+        }
+        pools.clear();
+    }
+
+    private static class Entry {
+        final ConnectionPool pool;
+        long borrows; // touched only by the scheduler thread
+        long activeTime;
+
+        Entry(ConnectionPool pool) {
+            this.pool = pool;
+            activeTime = System.nanoTime();
+        }
+    }
+
+}
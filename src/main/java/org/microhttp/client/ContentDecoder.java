@@ -0,0 +1,80 @@
+package org.microhttp.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Inflater;
+
+// decodes gzip and deflate bodies with pooled inflaters, refusing to produce more than maxDecodedSize bytes
+public final class ContentDecoder {
+
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final long maxDecodedSize;
+    private final Slab<Inflater> gzipInflaters; // raw deflate, gzip framing is handled here
+    private final Slab<Inflater> deflateInflaters; // zlib framing
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    public ContentDecoder(long maxDecodedSize, int poolCapacity) {
+        this.maxDecodedSize = maxDecodedSize;
+        gzipInflaters = new Slab<>(poolCapacity);
+        deflateInflaters = new Slab<>(poolCapacity);
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    public long maxDecodedSize() {
+        return maxDecodedSize;
+    }
+
+    // inflaters taken from the pool versus created
+    long hits() {
+        return hits.longValue();
+    }
+
+    long misses() {
+        return misses.longValue();
+    }
+
+    // true for the codings this decoder handles, anything else is passed through untouched
+    static boolean supports(String encoding) {
+        return encoding != null && (isGzip(encoding) || encoding.trim().equalsIgnoreCase("deflate"));
+    }
+
+    byte[] decode(String encoding, byte[] body) throws IOException {
+        try (var in = new InflatingInputStream(this, isGzip(encoding), null, body, null)) {
+            var out = new ByteArrayOutputStream(Math.max(32, Math.min(body.length * 4, 1 << 20)));
+            in.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    InputStream decode(String encoding, InputStream body, BufferPool pool) {
+        return new InflatingInputStream(this, isGzip(encoding), body, null, pool);
+    }
+
+    Inflater acquire(boolean gzip) {
+        var inflater = (gzip ? gzipInflaters : deflateInflaters).poll();
+        if (inflater != null) {
+            hits.increment();
+            return inflater;
+        }
+        misses.increment();
+        return new Inflater(gzip);
+    }
+
+    void release(boolean gzip, Inflater inflater) {
+        inflater.reset();
+        if (!(gzip ? gzipInflaters : deflateInflaters).offer(inflater)) {
+            inflater.end(); // native memory is freed now rather than at finalization
+        }
+    }
+
+    private static boolean isGzip(String encoding) {
+        var e = encoding.trim();
+        return e.equalsIgnoreCase("gzip") || e.equalsIgnoreCase("x-gzip");
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.microhttp.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// gzip-compresses request bodies at or above a size threshold with pooled deflaters
+public final class ContentEncoder {
+
+    static final String GZIP = "gzip";
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_SIZE = 8;
+
+    private final int level;
+    private final long threshold;
+    private final Slab<Deflater> deflaters;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    // bodies of unknown length are always compressed, known lengths below threshold never are
+    public ContentEncoder(int level, long threshold, int poolCapacity) {
+        this.level = level;
+        this.threshold = threshold;
+        deflaters = new Slab<>(poolCapacity);
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    long hits() {
+        return hits.longValue();
+    }
+
+    long misses() {
+        return misses.longValue();
+    }
+
+    // in-memory bodies come back compressed with a known length, streamed ones as a gzip stream of unknown length
+    RequestBody encode(RequestBody body) throws IOException {
+        var length = body.length();
+        if (length == 0 || (length > 0 && length < threshold)) {
+            return null;
+        }
+        if (body instanceof RequestBody.Bytes b) {
+            return RequestBody.of(compress(ByteBuffer.wrap(b.bytes())));
+        } else if (body instanceof RequestBody.Buffer b) {
+            return RequestBody.of(compress(b.buffer().duplicate()));
+        } else if (body instanceof RequestBody.Stream s) {
+            return RequestBody.of(new DeflatingInputStream(this, s.in(), s.length()));
+        } else if (body instanceof RequestBody.FileRegion f) {
+            return RequestBody.of(new DeflatingInputStream(this, regionStream(f), f.count()));
+        }
+        return null;
+    }
+
+    private byte[] compress(ByteBuffer input) {
+        var crc = new CRC32();
+        crc.update(input.duplicate());
+        var size = input.remaining();
+        var deflater = acquire();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            var out = new byte[Math.max(64, size / 2)];
+            System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+            var n = GZIP_HEADER.length;
+            while (!deflater.finished()) {
+                if (n == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                n += deflater.deflate(out, n, out.length - n);
+            }
+            out = Arrays.copyOf(out, n + GZIP_TRAILER_SIZE);
+            writeTrailer(out, n, crc.getValue(), size);
+            return out;
+        } finally {
+            release(deflater);
+        }
+    }
+
+    static byte[] header() {
+        return GZIP_HEADER.clone();
+    }
+
+    static void writeTrailer(byte[] out, int offset, long crc, long size) {
+        for (int i = 0; i < 4; i++) {
+            out[offset + i] = (byte) (crc >>> (8 * i));
+            out[offset + 4 + i] = (byte) (size >>> (8 * i));
+        }
+    }
+
+    Deflater acquire() {
+        var deflater = deflaters.poll();
+        if (deflater != null) {
+            hits.increment();
+            return deflater;
+        }
+        misses.increment();
+        return new Deflater(level, true); // raw deflate, gzip framing is written here
+    }
+
+    void release(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    // positional reads leave the channel's own position untouched
+    static InputStream regionStream(RequestBody.FileRegion region) {
+        return new InputStream() {
+            final FileChannel channel = region.channel();
+            long position = region.position();
+            final long end = region.position() + region.count();
+
+            @Override
+            public int read() throws IOException {
+                var b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position >= end) {
+                    return -1;
+                }
+                var n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+                if (n > 0) {
+                    position += n;
+                }
+                return n;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,142 @@
+package org.microhttp.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// total time budget of one exchange, blocked I/O is aborted by closing the socket it is attached to
+class Deadline {
+
+    private static final int ACTIVE = 0;
+    private static final int EXPIRED = 1;
+    private static final int CANCELLED = 2;
+    private static final int DONE = 3;
+
+    private final long deadline;
+    private final AtomicInteger state;
+    private final TimerWheel.Timeout timeout;
+    private volatile Socket socket;
+
+    // timeout in millis
+    Deadline(TimerWheel wheel, int timeout) {
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        state = new AtomicInteger(ACTIVE);
+        this.timeout = wheel.schedule(this::expire, deadline);
+    }
+
+    // in System.nanoTime terms
+    long deadline() {
+        return deadline;
+    }
+
+    boolean isActive() {
+        return state.get() == ACTIVE;
+    }
+
+    // safe from any thread, aborts in-flight I/O, true if the exchange was still running
+    boolean cancel() {
+        if (!state.compareAndSet(ACTIVE, CANCELLED)) {
+            return false;
+        }
+        timeout.cancel();
+        abort();
+        return true;
+    }
+
+    // false if the deadline expired or was cancelled first, its abort may still be closing the socket
+    boolean complete() {
+        var done = state.compareAndSet(ACTIVE, DONE);
+        timeout.cancel();
+        socket = null;
+        return done || state.get() == DONE;
+    }
+
+    // the smaller of the given timeout, 0 meaning none, and the time left, at least 1 ms
+    int timeout(int timeout) throws IOException {
+        check();
+        var left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (left <= 0) {
+            expire();
+            check();
+        }
+        return timeout > 0 && timeout < left ? timeout : (int) Math.min(Math.max(left, 1), Integer.MAX_VALUE);
+    }
+
+    void check() throws IOException {
+        var s = state.get();
+        if (s == EXPIRED) {
+            throw exceeded(null);
+        }
+        if (s == CANCELLED) {
+            throw cancelled(null);
+        }
+    }
+
+    // a socket attached after the deadline has passed is closed right away
+    void attach(Socket socket) throws IOException {
+        this.socket = socket;
+        if (state.get() != ACTIVE) {
+            abort();
+            check();
+        }
+    }
+
+    // reports an I/O failure caused by an abort as the expiry or cancellation behind it
+    IOException failure(IOException e) {
+        if (e instanceof Exceeded || e instanceof Cancelled) {
+            return e;
+        }
+        if (System.nanoTime() - deadline >= 0) { // the wheel may not have reached it yet
+            expire();
+        }
+        var s = state.get();
+        return s == EXPIRED ? exceeded(e) : s == CANCELLED ? cancelled(e) : e;
+    }
+
+    private void expire() {
+        if (state.compareAndSet(ACTIVE, EXPIRED)) {
+            abort();
+        }
+    }
+
+    private void abort() {
+        var s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignore) {}
+        }
+    }
+
+    private static IOException exceeded(IOException cause) {
+        var e = new Exceeded();
+        e.initCause(cause);
+        return e;
+    }
+
+    private static IOException cancelled(IOException cause) {
+        var e = new Cancelled();
+        e.initCause(cause);
+        return e;
+    }
+
+    private static class Exceeded extends SocketTimeoutException {
+        private static final long serialVersionUID = 1L;
+
+        Exceeded() {
+            super("Deadline exceeded");
+        }
+    }
+
+    private static class Cancelled extends InterruptedIOException {
+        private static final long serialVersionUID = 1L;
+
+        Cancelled() {
+            super("Request cancelled");
+        }
+    }
+
+}
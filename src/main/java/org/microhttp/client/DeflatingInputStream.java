@@ -0,0 +1,125 @@
+package org.microhttp.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// produces a gzip stream from a source as it is read, the deflater goes back to its pool at the end
+class DeflatingInputStream extends InputStream {
+
+    private static final int INPUT_SIZE = 8_192;
+
+    private final ContentEncoder encoder;
+    private final InputStream in;
+    private final long length; // expected source length, negative when unknown
+    private final CRC32 crc;
+    private final byte[] input;
+    private final byte[] header;
+    private final byte[] trailer;
+
+    private Deflater deflater;
+    private long consumed;
+    private int headerPos;
+    private int trailerPos;
+
+    DeflatingInputStream(ContentEncoder encoder, InputStream in, long length) {
+        this.encoder = encoder;
+        this.in = in;
+        this.length = length;
+        crc = new CRC32();
+        input = new byte[INPUT_SIZE];
+        header = ContentEncoder.header();
+        trailer = new byte[8];
+        deflater = encoder.acquire();
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (headerPos < header.length) {
+            var n = Math.min(len, header.length - headerPos);
+            System.arraycopy(header, headerPos, b, off, n);
+            headerPos += n;
+            return n;
+        }
+        if (deflater != null) {
+            var n = deflate(b, off, len);
+            if (n > 0) {
+                return n;
+            }
+        }
+        if (trailerPos < trailer.length) {
+            var n = Math.min(len, trailer.length - trailerPos);
+            System.arraycopy(trailer, trailerPos, b, off, n);
+            trailerPos += n;
+            return n;
+        }
+        return -1;
+    }
+
+    // the source belongs to the caller and stays open, as it does for bodies sent unencoded
+    @Override
+    public void close() {
+        release();
+    }
+
+    // returns 0 once the deflater has finished and the trailer is ready
+    private int deflate(byte[] b, int off, int len) throws IOException {
+        while (true) {
+            var n = deflater.deflate(b, off, len);
+            if (n > 0) {
+                return n;
+            }
+            if (deflater.finished()) {
+                ContentEncoder.writeTrailer(trailer, 0, crc.getValue(), consumed);
+                release();
+                return 0;
+            }
+            if (deflater.needsInput()) {
+                var r = readInput();
+                if (r < 0) {
+                    deflater.finish();
+                } else {
+                    deflater.setInput(input, 0, r);
+                }
+            }
+        }
+    }
+
+    private int readInput() throws IOException {
+        var max = length < 0 ? input.length : (int) Math.min(input.length, length - consumed);
+        if (max == 0) {
+            return -1;
+        }
+        var r = in.read(input, 0, max);
+        if (r < 0) {
+            if (length >= 0) {
+                throw new EOFException("request body ended before declared length");
+            }
+            return -1;
+        }
+        crc.update(input, 0, r);
+        consumed += r;
+        return r;
+    }
+
+    private void release() {
+        if (deflater != null) {
+            encoder.release(deflater);
+            deflater = null;
+        }
+    }
+
+}
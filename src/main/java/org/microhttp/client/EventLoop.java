@@ -0,0 +1,235 @@
+package org.microhttp.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+class EventLoop implements Runnable {
+
+    private static final long TICK_MILLIS = 100; // granularity of timeout checks
+
+    private final InetSocketAddress localAddress; // resolved by the caller, lookups would stall the loop
+    private final long connectTimeout;
+    private final long socketTimeout;
+    private final long idleTimeout;
+    private final BufferPool bufferPool;
+    private final Selector selector;
+    private final Queue<Runnable> tasks;
+    private final Deque<ChannelConnection> idle;
+    private final Set<ChannelConnection> connections;
+
+    private volatile boolean running;
+
+    EventLoop(
+            InetSocketAddress localAddress,
+            int connectTimeout,
+            int socketTimeout,
+            int idleTimeout,
+            BufferPool bufferPool) throws IOException {
+        this.localAddress = localAddress;
+        this.connectTimeout = TimeUnit.MILLISECONDS.toNanos(connectTimeout);
+        this.socketTimeout = TimeUnit.MILLISECONDS.toNanos(socketTimeout);
+        this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.bufferPool = bufferPool;
+        selector = Selector.open();
+        tasks = new ConcurrentLinkedQueue<>();
+        idle = new ArrayDeque<>();
+        connections = new HashSet<>();
+        running = true;
+    }
+
+    // head marks a HEAD request, its response carries no body, remote is used only when a connection is opened
+    void send(ByteBuffer request, boolean head, InetSocketAddress remote, CompletableFuture<Response> future) {
+        if (!running) {
+            future.completeExceptionally(new IOException("event loop stopped"));
+            return;
+        }
+        execute(() -> exchange(request, head, remote, future));
+    }
+
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        var nextTick = System.nanoTime();
+        try {
+            while (running) {
+                selector.select(TICK_MILLIS);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                var it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    handle(it.next());
+                    it.remove();
+                }
+                var now = System.nanoTime();
+                if (now - nextTick >= 0) {
+                    sweep(now);
+                    nextTick = now + TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+                }
+            }
+        } catch (IOException ignore) {
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void exchange(ByteBuffer request, boolean head, InetSocketAddress remote, CompletableFuture<Response> future) {
+        if (!running) {
+            future.completeExceptionally(new IOException("event loop stopped"));
+            return;
+        }
+        var c = idle.pollFirst(); // most recently used first
+        try {
+            if (c == null) {
+                c = open(remote);
+            }
+            c.start(request, head, future, System.nanoTime());
+            if (c.connected) {
+                write(c);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (c != null) {
+                fail(c, e);
+            } else {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private ChannelConnection open(InetSocketAddress remote) throws IOException {
+        var channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            if (localAddress != null) {
+                channel.bind(localAddress);
+            }
+            var connected = channel.connect(remote);
+            var key = channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT);
+            var c = new ChannelConnection(channel, key, connected, System.nanoTime());
+            key.attach(c);
+            connections.add(c);
+            return c;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        var c = (ChannelConnection) key.attachment();
+        if (!key.isValid()) {
+            return;
+        }
+        try {
+            if (key.isConnectable()) {
+                if (c.channel.finishConnect()) {
+                    c.connected = true;
+                    write(c);
+                }
+            } else if (key.isWritable()) {
+                write(c);
+            } else if (key.isReadable()) {
+                read(c);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(c, e);
+        }
+    }
+
+    private void write(ChannelConnection c) throws IOException {
+        c.channel.write(c.request);
+        c.lastActivity = System.nanoTime();
+        c.key.interestOps(c.request.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void read(ChannelConnection c) throws IOException {
+        var eof = c.tokenizer.read(c.channel, bufferPool) < 0;
+        if (eof && (c.parser == null || !c.parser.endOfInput())) {
+            throw new EOFException();
+        }
+        c.lastActivity = System.nanoTime();
+        if (c.future == null) { // idle connections stay readable only to notice a close by the server
+            throw new IOException("unexpected data on idle connection");
+        }
+        if (c.parser.parse()) {
+            var response = c.parser.response();
+            var keepAlive = !eof && c.parser.keepAlive();
+            var future = c.finish();
+            if (keepAlive) {
+                idle.addFirst(c);
+            } else {
+                close(c);
+            }
+            future.complete(response); // dependent stages without an executor run on this loop thread
+        }
+    }
+
+    private void fail(ChannelConnection c, Exception e) {
+        close(c);
+        var future = c.finish();
+        if (future != null) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void close(ChannelConnection c) {
+        connections.remove(c);
+        idle.remove(c);
+        c.close();
+    }
+
+    private void sweep(long now) {
+        for (var c : new ArrayList<>(connections)) {
+            if (!c.connected) {
+                if (now - c.createTime > connectTimeout) {
+                    fail(c, new SocketTimeoutException("Connect timed out"));
+                }
+            } else if (c.future != null) {
+                if (socketTimeout > 0 && now - c.lastActivity > socketTimeout) {
+                    fail(c, new SocketTimeoutException("Read timed out"));
+                }
+            } else if (now - c.lastActivity > idleTimeout) {
+                close(c);
+            }
+        }
+    }
+
+    private void shutdown() {
+        for (var c : new ArrayList<>(connections)) {
+            fail(c, new IOException("event loop stopped"));
+        }
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run(); // fails pending exchanges now that running is false
+        }
+        try {
+            selector.close();
+        } catch (IOException ignore) {}
+    }
+
+}
@@ -0,0 +1,266 @@
+package org.microhttp.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// raw header bytes plus an offset index, names and values are decoded only when read
+final class HeaderBlock extends AbstractList<Header> {
+
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes();
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes();
+    private static final byte[] CONNECTION = "connection".getBytes();
+    private static final byte[] CONTENT_TYPE = "content-type".getBytes();
+    private static final byte[] CHUNKED = "chunked".getBytes();
+
+    // per header: name offset, name length, value offset, value length
+    private static final int FIELDS = 4;
+
+    private byte[] data = new byte[256];
+    private int length;
+    private int[] index = new int[FIELDS * 8];
+    private int count;
+    private Header[] decoded = new Header[8];
+
+    // case-insensitive hash table, slots and chain links hold header index + 1, first occurrence at the head
+    private int[] slots = new int[16];
+    private int[] chain = new int[8];
+
+    private int contentLength = -1;
+    private boolean chunked;
+    private int connection = -1;
+    private int contentType = -1;
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Header get(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        var header = decoded[i];
+        if (header == null) {
+            header = decoded[i] = new Header(name(i), value(i));
+        }
+        return header;
+    }
+
+    // first value of the named header, or null
+    String value(String name) {
+        for (var i = slots[slot(hash(name))] - 1; i >= 0; i = chain[i] - 1) {
+            if (nameEquals(i, name)) {
+                return value(i);
+            }
+        }
+        return null;
+    }
+
+    List<String> values(String name) {
+        var values = new ArrayList<String>(1);
+        for (var i = slots[slot(hash(name))] - 1; i >= 0; i = chain[i] - 1) {
+            if (nameEquals(i, name)) {
+                values.add(value(i));
+            }
+        }
+        return values;
+    }
+
+    // -1 when absent
+    int contentLength() {
+        return contentLength;
+    }
+
+    boolean chunked() {
+        return chunked;
+    }
+
+    String connection() {
+        return connection < 0 ? null : value(connection);
+    }
+
+    String contentType() {
+        return contentType < 0 ? null : value(contentType);
+    }
+
+    // copies one header line of the given length out of the tokenizer and indexes it
+    void add(ByteTokenizer tokenizer, int lineLength) {
+        if (length + lineLength > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + lineLength));
+        }
+        var start = length;
+        tokenizer.next(data, start, lineLength);
+        length += lineLength;
+        index(start, start + lineLength);
+    }
+
+    private void index(int start, int end) {
+        var colon = start;
+        while (colon < end && data[colon] != ':') {
+            colon++;
+        }
+        if (colon == start || colon == end) {
+            throw new IllegalStateException("malformed header line");
+        }
+        var valueStart = colon + 1;
+        while (valueStart < end && data[valueStart] == ' ') { // advance beyond variable-length space prefix
+            valueStart++;
+        }
+        if (count == decoded.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+            decoded = Arrays.copyOf(decoded, decoded.length * 2);
+            chain = Arrays.copyOf(chain, chain.length * 2);
+        }
+        var i = count++;
+        index[i * FIELDS] = start;
+        index[i * FIELDS + 1] = colon - start;
+        index[i * FIELDS + 2] = valueStart;
+        index[i * FIELDS + 3] = end - valueStart;
+        link(i);
+        recognize(i);
+    }
+
+    // well-known headers are picked out by byte comparison as they are indexed
+    private void recognize(int i) {
+        if (contentLength < 0 && nameEquals(i, CONTENT_LENGTH)) {
+            contentLength = parseContentLength(i);
+        } else if (nameEquals(i, TRANSFER_ENCODING)) {
+            chunked = finalCodingChunked(index[i * FIELDS + 2], index[i * FIELDS + 3]); // a later line decides
+        } else if (connection < 0 && nameEquals(i, CONNECTION)) {
+            connection = i;
+        } else if (contentType < 0 && nameEquals(i, CONTENT_TYPE)) {
+            contentType = i;
+        }
+    }
+
+    // chunked frames the body only as the last transfer coding applied, as in "gzip, chunked"
+    private boolean finalCodingChunked(int off, int len) {
+        var start = off;
+        for (int p = off + len - 1; p >= off; p--) {
+            if (data[p] == ',') {
+                start = p + 1;
+                break;
+            }
+        }
+        while (start < off + len && (data[start] == ' ' || data[start] == '\t')) {
+            start++;
+        }
+        return regionEquals(start, off + len - start, CHUNKED);
+    }
+
+    private int parseContentLength(int i) {
+        var off = index[i * FIELDS + 2];
+        var len = index[i * FIELDS + 3];
+        if (len == 0 || len > 10) {
+            throw new IllegalStateException("invalid content-length header value");
+        }
+        var value = 0L;
+        for (int p = off; p < off + len; p++) {
+            var digit = data[p] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalStateException("invalid content-length header value");
+            }
+            value = value * 10 + digit;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalStateException("invalid content-length header value");
+        }
+        return (int) value;
+    }
+
+    private void link(int i) {
+        if (count > slots.length / 2) {
+            rehash();
+            return; // rehash links every header, this one included
+        }
+        append(i);
+    }
+
+    private void append(int i) {
+        chain[i] = 0;
+        var slot = slot(hash(index[i * FIELDS], index[i * FIELDS + 1]));
+        if (slots[slot] == 0) {
+            slots[slot] = i + 1;
+            return;
+        }
+        var last = slots[slot] - 1;
+        while (chain[last] != 0) {
+            last = chain[last] - 1;
+        }
+        chain[last] = i + 1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        for (int i = 0; i < count; i++) {
+            append(i);
+        }
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & (slots.length - 1);
+    }
+
+    private String name(int i) {
+        return new String(data, index[i * FIELDS], index[i * FIELDS + 1], StandardCharsets.ISO_8859_1);
+    }
+
+    private String value(int i) {
+        return new String(data, index[i * FIELDS + 2], index[i * FIELDS + 3], StandardCharsets.ISO_8859_1);
+    }
+
+    private int hash(int off, int len) {
+        var h = 0;
+        for (int p = off; p < off + len; p++) {
+            h = 31 * h + lower(data[p]);
+        }
+        return h;
+    }
+
+    private static int hash(String name) {
+        var h = 0;
+        for (int p = 0; p < name.length(); p++) {
+            h = 31 * h + lower(name.charAt(p));
+        }
+        return h;
+    }
+
+    private boolean nameEquals(int i, String name) {
+        var off = index[i * FIELDS];
+        var len = index[i * FIELDS + 1];
+        if (len != name.length()) {
+            return false;
+        }
+        for (int p = 0; p < len; p++) {
+            if (lower(data[off + p]) != lower(name.charAt(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean nameEquals(int i, byte[] lowerName) {
+        return regionEquals(index[i * FIELDS], index[i * FIELDS + 1], lowerName);
+    }
+
+    private boolean regionEquals(int off, int len, byte[] lowerName) {
+        if (len != lowerName.length) {
+            return false;
+        }
+        for (int p = 0; p < len; p++) {
+            if (lower(data[off + p]) != lowerName[p]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lower(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+}
@@ -2,41 +2,271 @@ package org.microhttp.client;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 public class HttpClient {
 
-    private final int bufferSize;
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String METHOD_HEAD = "HEAD";
+
+    private final BufferPool bufferPool;
+    private final ClientListener listener;
+    private final boolean timed; // false for the no-op listener, keeps the clock off the hot path
+    private final ContentDecoder decoder; // null leaves bodies as received
+    private final ContentEncoder encoder; // null sends request bodies as given
+    private final int maxDrain; // unread body bytes a closed stream may read through to keep its connection
 
     public HttpClient(int bufferSize) {
-        this.bufferSize = bufferSize;
+        this(ClientConfig.builder().bufferSize(bufferSize).build());
+    }
+
+    public HttpClient(ClientConfig config) {
+        this.bufferPool = new BufferPool(config.bufferSize(), config.bufferPoolCapacity());
+        this.listener = config.listener();
+        this.timed = listener != ClientListener.NOOP;
+        this.decoder = config.decoder();
+        this.encoder = config.encoder();
+        this.maxDrain = config.maxDrain();
+    }
+
+    BufferPool bufferPool() {
+        return bufferPool;
     }
 
+    // the tokenizer outlives the response, retaining any bytes that arrived beyond it
     Response send(Connection connection, Request request) throws IOException {
         var socket = connection.socket();
         try {
-            return send(socket, request);
+            var start = written(connection, write(socket, request), timed ? System.nanoTime() : 0L);
+            return read(socket, connection.tokenizer(), connection, request, start);
+        } catch (IOException | RuntimeException e) { // a malformed response leaves unread bytes behind
+            if (e instanceof IOException io) {
+                failed(connection, io);
+            }
+            connection.tryClose();
+            throw e;
+        }
+    }
+
+    // runs borrow, send and release as one task, intended for a virtual-thread-per-task executor
+    CompletableFuture<Response> sendAsync(ConnectionPool pool, Request request, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                var connection = pool.borrow();
+                try {
+                    return send(connection, request);
+                } finally {
+                    pool.release(connection);
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    // the deadline covers pool wait, connect, write and the whole response, running out closes the socket in flight
+    Response send(ConnectionPool pool, Request request, Deadline deadline) throws IOException {
+        try {
+            var connection = pool.borrow(deadline);
+            try {
+                deadline.attach(connection.socket());
+                return send(connection, request);
+            } finally {
+                if (!deadline.complete()) { // the wheel must be done with the socket before the pool sees it again
+                    connection.tryClose();
+                }
+                pool.release(connection); // an aborted socket is closed and discarded
+            }
         } catch (IOException e) {
-            socket.close();
+            throw deadline.failure(e);
+        } finally {
+            deadline.complete();
+        }
+    }
+
+    // cancelling the returned future cancels the deadline, aborting whatever stage the exchange is in
+    CompletableFuture<Response> sendAsync(ConnectionPool pool, Request request, Executor executor, Deadline deadline) {
+        var future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return send(pool, request, deadline);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        future.whenComplete((r, e) -> {
+            if (future.isCancelled()) {
+                deadline.cancel();
+            }
+        });
+        return future;
+    }
+
+    // returns once the response head is parsed, the body stream hands the connection back to the pool
+    StreamingResponse stream(Connection connection, Request request, ConnectionPool pool) throws IOException {
+        var socket = connection.socket();
+        var bt = connection.tokenizer();
+        try {
+            var start = written(connection, write(socket, request), timed ? System.nanoTime() : 0L);
+            var rp = new ResponseParser(bt, isHead(request));
+            readHeaders(socket, bt, rp, connection, start);
+            var head = rp.response();
+            InputStream body = new BodyInputStream(connection, pool, rp, bufferPool, maxDrain);
+            var headers = head.headers();
+            var encoding = head.header(HEADER_CONTENT_ENCODING);
+            if (decoder != null && !rp.isDone() && ContentDecoder.supports(encoding)) { // HEAD, 204 and 304 have no body
+                body = decoder.decode(encoding, body, bufferPool);
+                headers = decodedHeaders(headers);
+            }
+            return new StreamingResponse(head.status(), head.reason(), headers, body);
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof IOException io) {
+                failed(connection, io);
+            }
+            connection.tryClose();
+            pool.release(connection);
             throw e;
         }
     }
 
+    // writes up to maxDepth requests ahead of the responses, reading responses in order on one connection
+    PipelineResult pipeline(Connection connection, List<Request> requests, int maxDepth) {
+        var socket = connection.socket();
+        var bt = connection.tokenizer();
+        var responses = new ArrayList<Response>(requests.size());
+        var sent = 0;
+        try {
+            while (responses.size() < requests.size()) {
+                while (sent < requests.size() && sent - responses.size() < maxDepth) {
+                    connection.sent(write(socket, requests.get(sent++)));
+                }
+                var request = requests.get(responses.size());
+                responses.add(read(socket, bt, connection, request, timed ? System.nanoTime() : 0L)); // timed from read start
+                if (!connection.keepAlive()) { // server processes nothing after a closing response
+                    return result(requests, responses, sent, null);
+                }
+            }
+            return result(requests, responses, sent, null);
+        } catch (IOException e) {
+            failed(connection, e);
+            connection.tryClose();
+            return result(requests, responses, sent, e); // a request whose write failed may have partly gone out
+        } catch (RuntimeException e) { // malformed response, the connection is out of sync
+            connection.tryClose();
+            throw e;
+        }
+    }
+
+    private static PipelineResult result(List<Request> requests, List<Response> responses, int sent, IOException failure) {
+        return new PipelineResult(
+                responses,
+                List.copyOf(requests.subList(responses.size(), sent)),
+                List.copyOf(requests.subList(sent, requests.size())),
+                failure);
+    }
+
     Response send(Socket socket, Request request) throws IOException {
-        var os = socket.getOutputStream();
-        var is = socket.getInputStream();
-        os.write(RequestSerializer.serialize(request));
-        var buffer = new byte[bufferSize];
         var bt = new ByteTokenizer();
-        var rp = new ResponseParser(bt);
+        try {
+            write(socket, request);
+            return read(socket, bt, null, request, 0L);
+        } finally {
+            bt.release();
+        }
+    }
+
+    private long written(Connection connection, long bytes, long start) {
+        connection.sent(bytes);
+        if (timed) {
+            listener.requestWritten(connection, bytes, System.nanoTime() - start);
+        }
+        return start;
+    }
+
+    private void failed(Connection connection, IOException e) {
+        connection.failed(e);
+        listener.failed(connection, e);
+    }
+
+    // connection is null for one-off sockets, which report nothing to the listener
+    private Response read(Socket socket, ByteTokenizer bt, Connection connection, Request request, long start)
+            throws IOException {
+        var is = socket.getInputStream();
+        var rp = new ResponseParser(bt, isHead(request));
+        readHeaders(socket, bt, rp, connection, start);
         while (!rp.parse()) {
-            var n = is.read(buffer, 0, bufferSize);
-            if (n < 0) {
+            if (bt.read(is, bufferPool) < 0 && !rp.endOfInput()) {
                 throw new EOFException();
             }
-            bt.add(Arrays.copyOfRange(buffer, 0, n));
         }
-        return rp.response();
+        var response = decode(rp.response());
+        if (timed && connection != null) {
+            listener.responseReceived(connection, response.status(), response.body().length, System.nanoTime() - start);
+        }
+        return response;
+    }
+
+    // a decoded body drops Content-Encoding and the encoded Content-Length, other headers are left as received
+    private Response decode(Response response) throws IOException {
+        if (decoder == null || response.body().length == 0) {
+            return response;
+        }
+        var encoding = response.header(HEADER_CONTENT_ENCODING);
+        if (!ContentDecoder.supports(encoding)) {
+            return response;
+        }
+        var body = decoder.decode(encoding, response.body());
+        return new Response(response.status(), response.reason(), decodedHeaders(response.headers()), body);
+    }
+
+    private static List<Header> decodedHeaders(List<Header> headers) {
+        return headers.stream()
+                .filter(h -> !h.name().equalsIgnoreCase(HEADER_CONTENT_ENCODING)
+                        && !h.name().equalsIgnoreCase(HEADER_CONTENT_LENGTH))
+                .toList();
+    }
+
+    private void readHeaders(Socket socket, ByteTokenizer bt, ResponseParser rp, Connection connection, long start)
+            throws IOException {
+        var timed = this.timed && connection != null;
+        if (timed && bt.available() > 0) { // arrived with an earlier response
+            listener.firstByte(connection, 0);
+        }
+        var waiting = timed && bt.available() == 0;
+        var is = socket.getInputStream();
+        while (!rp.parseHeaders()) {
+            if (bt.read(is, bufferPool) < 0) {
+                throw new EOFException();
+            }
+            if (waiting) {
+                listener.firstByte(connection, System.nanoTime() - start);
+                waiting = false;
+            }
+        }
+        if (connection != null && !rp.keepAlive()) {
+            connection.closeAfterUse();
+        }
+        if (timed) {
+            listener.headersParsed(connection, rp.response().status(), System.nanoTime() - start);
+        }
+    }
+
+    private static boolean isHead(Request request) {
+        return request.method().equalsIgnoreCase(METHOD_HEAD);
+    }
+
+    private long write(Socket socket, Request request) throws IOException {
+        var scratch = bufferPool.acquire();
+        try {
+            return RequestSerializer.write(request, socket.getOutputStream(), socket.getChannel(), scratch, decoder != null, encoder);
+        } finally {
+            bufferPool.release(scratch);
+        }
     }
 }
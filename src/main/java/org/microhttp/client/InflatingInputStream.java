@@ -0,0 +1,208 @@
+package org.microhttp.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+// inflates either a whole body array or a body stream, the inflater goes back to its pool once done or closed
+class InflatingInputStream extends InputStream {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final ContentDecoder decoder;
+    private final boolean gzip;
+    private final InputStream in; // null when the whole input is given up front
+    private final BufferPool pool;
+    private final CRC32 crc;
+
+    private Inflater inflater;
+    private byte[] input;
+    private int pos;
+    private int limit;
+    private long produced;
+    private boolean started;
+    private boolean done;
+
+    InflatingInputStream(ContentDecoder decoder, boolean gzip, InputStream in, byte[] body, BufferPool pool) {
+        this.decoder = decoder;
+        this.gzip = gzip;
+        this.in = in;
+        this.pool = pool;
+        crc = gzip ? new CRC32() : null;
+        inflater = decoder.acquire(gzip);
+        if (body != null) {
+            input = body;
+            limit = body.length;
+        } else {
+            input = pool.acquire();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (inflater == null && !done) {
+            throw new IOException("stream closed");
+        }
+        if (done) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!started) {
+            if (gzip) {
+                readGzipHeader();
+            }
+            inflater.setInput(input, pos, limit - pos);
+            started = true;
+        }
+        try {
+            int n;
+            while ((n = inflater.inflate(b, off, len)) == 0) {
+                if (inflater.finished()) {
+                    finish();
+                    return -1;
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("preset dictionary not supported");
+                }
+                if (inflater.needsInput()) {
+                    pos = limit;
+                    if (!fill()) {
+                        throw new EOFException("compressed body ended early");
+                    }
+                    inflater.setInput(input, pos, limit - pos);
+                }
+            }
+            produced += n;
+            if (produced > decoder.maxDecodedSize()) {
+                throw new IOException("decoded body exceeds " + decoder.maxDecodedSize() + " bytes");
+            }
+            if (crc != null) {
+                crc.update(b, off, n);
+            }
+            return n;
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    // verifies the gzip trailer and drains the source, so a fully read stream hands its connection back
+    private void finish() throws IOException {
+        pos = limit - inflater.getRemaining();
+        if (gzip) {
+            var expectedCrc = readInt();
+            var expectedSize = readInt();
+            if (expectedCrc != (int) crc.getValue() || expectedSize != (int) inflater.getBytesWritten()) {
+                throw new ZipException("corrupt gzip trailer");
+            }
+        }
+        done = true;
+        release();
+        if (in != null) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private void release() {
+        if (inflater != null) {
+            decoder.release(gzip, inflater);
+            inflater = null;
+        }
+        if (in != null && input != null) {
+            pool.release(input);
+        }
+        input = null;
+    }
+
+    private void readGzipHeader() throws IOException {
+        if (readShort() != GZIP_MAGIC) {
+            throw new ZipException("not in gzip format");
+        }
+        if (readByte() != 8) {
+            throw new ZipException("unsupported compression method");
+        }
+        var flags = readByte();
+        skip(6); // mtime, extra flags, os
+        if ((flags & FEXTRA) != 0) {
+            skip(readShort());
+        }
+        if ((flags & FNAME) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FHCRC) != 0) {
+            skip(2);
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (pos == limit && !fill()) {
+            throw new EOFException("gzip framing ended early");
+        }
+        return input[pos++] & 0xFF;
+    }
+
+    private int readShort() throws IOException {
+        return readByte() | readByte() << 8;
+    }
+
+    private int readInt() throws IOException {
+        return readShort() | readShort() << 16;
+    }
+
+    private void skip(int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readByte();
+        }
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        var b = readByte();
+        while (b != 0) {
+            b = readByte();
+        }
+    }
+
+    // refills the consumed input buffer from the source, false at end of input
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        var n = in.read(input, 0, input.length);
+        if (n < 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.microhttp.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.io.IOException;
+
+// emits JFR events, each costs an enabled check when no recording asks for them
+public class JfrListener implements ClientListener {
+
+    @Override
+    public void poolWait(HostPort remoteAddress, long nanos) {
+        var e = new PoolWaitEvent();
+        if (e.isEnabled()) {
+            e.remote = remoteAddress.toString();
+            e.wait = nanos;
+            e.commit();
+        }
+    }
+
+    @Override
+    public void connected(HostPort remoteAddress, long nanos) {
+        var e = new ConnectEvent();
+        if (e.isEnabled()) {
+            e.remote = remoteAddress.toString();
+            e.connect = nanos;
+            e.commit();
+        }
+    }
+
+    @Override
+    public void handshake(HostPort remoteAddress, long nanos, boolean resumed) {
+        var e = new HandshakeEvent();
+        if (e.isEnabled()) {
+            e.remote = remoteAddress.toString();
+            e.handshake = nanos;
+            e.resumed = resumed;
+            e.commit();
+        }
+    }
+
+    @Override
+    public void responseReceived(Connection connection, int status, long bodyBytes, long nanos) {
+        var e = new ResponseEvent();
+        if (e.isEnabled()) {
+            e.remote = connection.remoteAddress().toString();
+            e.status = status;
+            e.bodyBytes = bodyBytes;
+            e.response = nanos;
+            e.commit();
+        }
+    }
+
+    @Override
+    public void failed(Connection connection, IOException ex) {
+        var e = new FailureEvent();
+        if (e.isEnabled()) {
+            e.remote = connection.remoteAddress().toString();
+            e.message = ex.toString();
+            e.commit();
+        }
+    }
+
+    @Name("org.microhttp.client.PoolWait")
+    @Label("Pool Wait")
+    @Category("HTTP Client")
+    static class PoolWaitEvent extends Event {
+        @Label("Remote")
+        String remote;
+        @Label("Wait")
+        @Timespan
+        long wait;
+    }
+
+    @Name("org.microhttp.client.Connect")
+    @Label("Connect")
+    @Category("HTTP Client")
+    static class ConnectEvent extends Event {
+        @Label("Remote")
+        String remote;
+        @Label("Connect")
+        @Timespan
+        long connect;
+    }
+
+    @Name("org.microhttp.client.Handshake")
+    @Label("TLS Handshake")
+    @Category("HTTP Client")
+    static class HandshakeEvent extends Event {
+        @Label("Remote")
+        String remote;
+        @Label("Handshake")
+        @Timespan
+        long handshake;
+        @Label("Resumed")
+        boolean resumed;
+    }
+
+    @Name("org.microhttp.client.Response")
+    @Label("Response")
+    @Category("HTTP Client")
+    static class ResponseEvent extends Event {
+        @Label("Remote")
+        String remote;
+        @Label("Status")
+        int status;
+        @Label("Body Bytes")
+        long bodyBytes;
+        @Label("Response")
+        @Timespan
+        long response;
+    }
+
+    @Name("org.microhttp.client.Failure")
+    @Label("Failure")
+    @Category("HTTP Client")
+    static class FailureEvent extends Event {
+        @Label("Remote")
+        String remote;
+        @Label("Message")
+        String message;
+    }
+
+}
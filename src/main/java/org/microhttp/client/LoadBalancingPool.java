@@ -0,0 +1,251 @@
+package org.microhttp.client;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// spreads connections over every address the remote host resolves to, one ConnectionPool per address
+class LoadBalancingPool {
+
+    enum Policy {
+        ROUND_ROBIN,
+        LEAST_OUTSTANDING,
+        POWER_OF_TWO_CHOICES
+    }
+
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final PoolConfig config;
+    private final Resolver resolver;
+    private final HostPort remoteAddress;
+    private final Policy policy;
+    private final long resolveTtl;
+    private final int maxFailures;
+    private final long ejectTime;
+    private final AtomicInteger next;
+    private final ReentrantLock resolveLock; // not a monitor, resolving may block and must not pin a virtual thread
+
+    private volatile List<Endpoint> endpoints;
+    private volatile long resolveTime;
+
+    // config holds the per-endpoint pool settings, its resolver and remoteAddress name the balanced host,
+    // resolveTtl and ejectTime in millis, an endpoint is ejected after maxFailures consecutive failures
+    LoadBalancingPool(PoolConfig config, Policy policy, int resolveTtl, int maxFailures, int ejectTime) {
+        this.config = config;
+        this.resolver = config.resolver();
+        this.remoteAddress = config.remoteAddress();
+        this.policy = policy;
+        this.resolveTtl = TimeUnit.MILLISECONDS.toNanos(resolveTtl);
+        this.maxFailures = maxFailures;
+        this.ejectTime = TimeUnit.MILLISECONDS.toNanos(ejectTime);
+        next = new AtomicInteger();
+        resolveLock = new ReentrantLock();
+        endpoints = List.of();
+    }
+
+    void start() {
+        config.threadFactory().newThread(this::runEvictionTask).start();
+    }
+
+    List<HostPort> endpoints() {
+        return endpoints.stream().map(e -> e.address).toList();
+    }
+
+    int outstanding(HostPort address) {
+        var e = find(endpoints, address);
+        return e == null ? 0 : e.outstanding.get();
+    }
+
+    boolean ejected(HostPort address) {
+        var e = find(endpoints, address);
+        return e != null && e.ejected(System.nanoTime());
+    }
+
+    Connection borrow() throws IOException {
+        var endpoint = select(resolve());
+        endpoint.outstanding.incrementAndGet();
+        try {
+            var c = endpoint.pool.borrow();
+            return c.use(); // borrow start, measured again at release
+        } catch (IOException | RuntimeException e) {
+            endpoint.outstanding.decrementAndGet();
+            endpoint.failed();
+            throw e;
+        }
+    }
+
+    // a connection released closed is counted as a failure of its endpoint
+    void release(Connection connection) {
+        var endpoint = find(endpoints, connection.remoteAddress());
+        if (endpoint == null) { // address no longer resolved
+            connection.tryClose();
+            return;
+        }
+        endpoint.outstanding.decrementAndGet();
+        if (connection.socket().isClosed()) {
+            endpoint.failed();
+        } else {
+            endpoint.succeeded(System.nanoTime() - connection.lastUseTime());
+        }
+        endpoint.pool.release(connection);
+    }
+
+    private List<Endpoint> resolve() throws IOException {
+        var current = endpoints;
+        if (!current.isEmpty() && System.nanoTime() - resolveTime < resolveTtl) {
+            return current;
+        }
+        if (current.isEmpty()) {
+            resolveLock.lock();
+        } else if (!resolveLock.tryLock()) { // another borrower is refreshing, the stale list still serves
+            return current;
+        }
+        try {
+            if (endpoints != current) { // refreshed by another borrower
+                return endpoints;
+            }
+            InetAddress[] addresses;
+            try {
+                addresses = resolver.resolve(remoteAddress.host());
+            } catch (UnknownHostException e) {
+                if (current.isEmpty()) {
+                    throw e;
+                }
+                resolveTime = System.nanoTime(); // the known endpoints serve another ttl before the next attempt
+                return current;
+            }
+            var updated = new ArrayList<Endpoint>(addresses.length);
+            for (var address : addresses) {
+                var hp = new HostPort(address.getHostAddress(), remoteAddress.port());
+                var existing = find(current, hp);
+                updated.add(existing != null ? existing : newEndpoint(hp));
+            }
+            for (var e : current) {
+                if (!updated.contains(e)) {
+                    e.pool.close();
+                }
+            }
+            endpoints = List.copyOf(updated);
+            resolveTime = System.nanoTime();
+            return endpoints;
+        } finally {
+            resolveLock.unlock();
+        }
+    }
+
+    private Endpoint select(List<Endpoint> candidates) throws IOException {
+        var now = System.nanoTime();
+        var healthy = candidates.stream().filter(e -> !e.ejected(now)).toList();
+        if (healthy.isEmpty()) { // every endpoint ejected, fail open rather than refuse all traffic
+            healthy = candidates;
+        }
+        if (healthy.isEmpty()) {
+            throw new IOException("no addresses for " + remoteAddress.host());
+        }
+        return switch (policy) {
+            case ROUND_ROBIN -> healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+            case LEAST_OUTSTANDING -> leastOutstanding(healthy);
+            case POWER_OF_TWO_CHOICES -> powerOfTwoChoices(healthy);
+        };
+    }
+
+    private Endpoint leastOutstanding(List<Endpoint> candidates) {
+        var start = Math.floorMod(next.getAndIncrement(), candidates.size()); // rotate ties
+        Endpoint best = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            var e = candidates.get((start + i) % candidates.size());
+            if (best == null || e.outstanding.get() < best.outstanding.get()) {
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    private static Endpoint powerOfTwoChoices(List<Endpoint> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        var random = ThreadLocalRandom.current();
+        var i = random.nextInt(candidates.size());
+        var j = random.nextInt(candidates.size() - 1);
+        var a = candidates.get(i);
+        var b = candidates.get(j < i ? j : j + 1);
+        return a.cost() <= b.cost() ? a : b;
+    }
+
+    private Endpoint newEndpoint(HostPort address) {
+        var endpointConfig = config.toBuilder()
+                .resolver(Resolver.SYSTEM) // address is a literal
+                .tls(null)
+                .remoteAddress(address)
+                .threadFactory(null) // evicted by this pool's task
+                .build();
+        return new Endpoint(address, new ConnectionPool(endpointConfig));
+    }
+
+    private static Endpoint find(List<Endpoint> endpoints, HostPort address) {
+        for (var e : endpoints) {
+            if (e.address.equals(address)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private void runEvictionTask() {
+        while (true) {
+            for (var e : endpoints) {
+                e.pool.purgeExpired();
+            }
+            try {
+                Thread.sleep(config.evictPollPeriod());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private class Endpoint {
+        final HostPort address;
+        final ConnectionPool pool;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile double latency; // EWMA of borrow-to-release nanos
+        volatile long ejectedUntil;
+
+        Endpoint(HostPort address, ConnectionPool pool) {
+            this.address = address;
+            this.pool = pool;
+            ejectedUntil = System.nanoTime();
+        }
+
+        boolean ejected(long now) {
+            return ejectedUntil - now > 0;
+        }
+
+        // expected wait behind requests already in flight, unmeasured endpoints are tried first
+        double cost() {
+            return latency * (outstanding.get() + 1);
+        }
+
+        void succeeded(long nanos) {
+            failures.set(0);
+            var l = latency;
+            latency = l == 0 ? nanos : l + EWMA_WEIGHT * (nanos - l); // racy update, a lost sample is harmless
+        }
+
+        void failed() {
+            if (failures.incrementAndGet() >= maxFailures) {
+                failures.set(0);
+                ejectedUntil = System.nanoTime() + ejectTime;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.microhttp.client;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+// records every phase into histograms, readable at any time from any thread
+public class MetricsListener implements ClientListener {
+
+    private final Histogram poolWait = new Histogram();
+    private final Histogram connect = new Histogram();
+    private final Histogram handshake = new Histogram();
+    private final Histogram firstByte = new Histogram();
+    private final Histogram headers = new Histogram();
+    private final Histogram response = new Histogram();
+    private final Histogram bodySize = new Histogram();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public Histogram poolWait() {
+        return poolWait;
+    }
+
+    public Histogram connect() {
+        return connect;
+    }
+
+    public Histogram handshake() {
+        return handshake;
+    }
+
+    public Histogram firstByte() {
+        return firstByte;
+    }
+
+    public Histogram headers() {
+        return headers;
+    }
+
+    public Histogram response() {
+        return response;
+    }
+
+    public Histogram bodySize() {
+        return bodySize;
+    }
+
+    public long evictions() {
+        return evictions.longValue();
+    }
+
+    public long failures() {
+        return failures.longValue();
+    }
+
+    @Override
+    public void poolWait(HostPort remoteAddress, long nanos) {
+        poolWait.record(nanos);
+    }
+
+    @Override
+    public void connected(HostPort remoteAddress, long nanos) {
+        connect.record(nanos);
+    }
+
+    @Override
+    public void handshake(HostPort remoteAddress, long nanos, boolean resumed) {
+        handshake.record(nanos);
+    }
+
+    @Override
+    public void evicted(Connection connection) {
+        evictions.increment();
+    }
+
+    @Override
+    public void firstByte(Connection connection, long nanos) {
+        firstByte.record(nanos);
+    }
+
+    @Override
+    public void headersParsed(Connection connection, int status, long nanos) {
+        headers.record(nanos);
+    }
+
+    @Override
+    public void responseReceived(Connection connection, int status, long bodyBytes, long nanos) {
+        response.record(nanos);
+        bodySize.record(bodyBytes);
+    }
+
+    @Override
+    public void failed(Connection connection, IOException e) {
+        failures.increment();
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.microhttp.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// event-loop alternative to HttpClient plus ConnectionPool for large numbers of concurrent requests
+public class NioHttpClient implements AutoCloseable {
+
+    private final Resolver resolver;
+    private final HostPort remoteAddress;
+    private final EventLoop[] loops;
+    private final BufferPool bufferPool;
+    private final ThreadFactory threadFactory;
+    private final AtomicInteger next;
+
+    public NioHttpClient(
+            HostPort localAddress,
+            HostPort remoteAddress,
+            int loopCount,
+            int bufferSize,
+            int connectTimeout,
+            int socketTimeout,
+            int idleTimeout,
+            ThreadFactory threadFactory) throws IOException {
+        this(Resolver.SYSTEM, localAddress, remoteAddress, loopCount, bufferSize, connectTimeout, socketTimeout,
+                idleTimeout, threadFactory);
+    }
+
+    // host names are resolved on the calling thread, never on an event loop
+    public NioHttpClient(
+            Resolver resolver,
+            HostPort localAddress,
+            HostPort remoteAddress,
+            int loopCount,
+            int bufferSize,
+            int connectTimeout,
+            int socketTimeout,
+            int idleTimeout,
+            ThreadFactory threadFactory) throws IOException {
+        this.resolver = resolver;
+        this.remoteAddress = remoteAddress;
+        this.bufferPool = new BufferPool(bufferSize, loopCount * 256);
+        this.threadFactory = threadFactory;
+        var local = localAddress == null ? null : localAddress.toSocketAddress();
+        loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop(local, connectTimeout, socketTimeout, idleTimeout, bufferPool);
+        }
+        next = new AtomicInteger();
+    }
+
+    void start() {
+        for (var loop : loops) {
+            threadFactory.newThread(loop).start();
+        }
+    }
+
+    BufferPool bufferPool() {
+        return bufferPool;
+    }
+
+    // request is serialized on the calling thread, so streamed bodies never block an event loop
+    CompletableFuture<Response> send(Request request) {
+        var out = new RequestOutput();
+        var scratch = bufferPool.acquire();
+        InetSocketAddress remote;
+        try {
+            RequestSerializer.write(request, out, null, scratch);
+            remote = new InetSocketAddress(resolver.resolve(remoteAddress.host())[0], remoteAddress.port());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            bufferPool.release(scratch);
+        }
+        var future = new CompletableFuture<Response>();
+        loops[Math.floorMod(next.getAndIncrement(), loops.length)].send(out.toByteBuffer(), request.method().equalsIgnoreCase("HEAD"), remote, future);
+        return future;
+    }
+
+    @Override
+    public void close() {
+        for (var loop : loops) {
+            loop.stop();
+        }
+    }
+
+    private static class RequestOutput extends ByteArrayOutputStream {
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count); // no trailing copy
+        }
+    }
+
+}
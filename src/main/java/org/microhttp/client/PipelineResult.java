@@ -0,0 +1,8 @@
+package org.microhttp.client;
+
+import java.io.IOException;
+import java.util.List;
+
+// responses in request order, unanswered requests were written but got no response and may have run on the server,
+// unsent requests never reached the connection and are safe to retry
+public record PipelineResult(List<Response> responses, List<Request> unanswered, List<Request> unsent, IOException failure) {}
@@ -0,0 +1,248 @@
+package org.microhttp.client;
+
+import javax.net.SocketFactory;
+import java.util.concurrent.ThreadFactory;
+
+// connection pool settings, durations in millis, named rather than positional so adjacent ints cannot be swapped
+public final class PoolConfig {
+
+    private final Resolver resolver;
+    private final SocketFactory socketFactory;
+    private final TlsConfig tls;
+    private final HostPort localAddress;
+    private final HostPort remoteAddress;
+    private final int connectTimeout;
+    private final int socketTimeout;
+    private final int idleTimeout;
+    private final int evictPollPeriod;
+    private final int maxConnections;
+    private final int maxWait;
+    private final boolean fair;
+    private final int minIdle;
+    private final int maxLifetime;
+    private final int validateAfterInactivity;
+    private final ClientListener listener;
+    private final ThreadFactory threadFactory;
+
+    private PoolConfig(Builder b) {
+        resolver = b.resolver;
+        socketFactory = b.socketFactory;
+        tls = b.tls;
+        localAddress = b.localAddress;
+        remoteAddress = b.remoteAddress;
+        connectTimeout = b.connectTimeout;
+        socketTimeout = b.socketTimeout;
+        idleTimeout = b.idleTimeout;
+        evictPollPeriod = b.evictPollPeriod;
+        maxConnections = b.maxConnections;
+        maxWait = b.maxWait;
+        fair = b.fair;
+        minIdle = b.minIdle;
+        maxLifetime = b.maxLifetime;
+        validateAfterInactivity = b.validateAfterInactivity;
+        listener = b.listener;
+        threadFactory = b.threadFactory;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // a copy to adjust, e.g. one pool per route from shared settings
+    public Builder toBuilder() {
+        var b = new Builder();
+        b.resolver = resolver;
+        b.socketFactory = socketFactory;
+        b.tls = tls;
+        b.localAddress = localAddress;
+        b.remoteAddress = remoteAddress;
+        b.connectTimeout = connectTimeout;
+        b.socketTimeout = socketTimeout;
+        b.idleTimeout = idleTimeout;
+        b.evictPollPeriod = evictPollPeriod;
+        b.maxConnections = maxConnections;
+        b.maxWait = maxWait;
+        b.fair = fair;
+        b.minIdle = minIdle;
+        b.maxLifetime = maxLifetime;
+        b.validateAfterInactivity = validateAfterInactivity;
+        b.listener = listener;
+        b.threadFactory = threadFactory;
+        return b;
+    }
+
+    Resolver resolver() {
+        return resolver;
+    }
+
+    SocketFactory socketFactory() {
+        return socketFactory;
+    }
+
+    TlsConfig tls() {
+        return tls;
+    }
+
+    HostPort localAddress() {
+        return localAddress;
+    }
+
+    HostPort remoteAddress() {
+        return remoteAddress;
+    }
+
+    int connectTimeout() {
+        return connectTimeout;
+    }
+
+    int socketTimeout() {
+        return socketTimeout;
+    }
+
+    int idleTimeout() {
+        return idleTimeout;
+    }
+
+    int evictPollPeriod() {
+        return evictPollPeriod;
+    }
+
+    int maxConnections() {
+        return maxConnections;
+    }
+
+    int maxWait() {
+        return maxWait;
+    }
+
+    boolean fair() {
+        return fair;
+    }
+
+    int minIdle() {
+        return minIdle;
+    }
+
+    int maxLifetime() {
+        return maxLifetime;
+    }
+
+    int validateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    ClientListener listener() {
+        return listener;
+    }
+
+    ThreadFactory threadFactory() {
+        return threadFactory;
+    }
+
+    // caps and limits <= 0 are off, a null tls connects in plain text, a null threadFactory leaves eviction to the owner
+    public static final class Builder {
+
+        private Resolver resolver = Resolver.SYSTEM;
+        private SocketFactory socketFactory = SocketFactory.getDefault();
+        private TlsConfig tls;
+        private HostPort localAddress;
+        private HostPort remoteAddress;
+        private int connectTimeout = 10_000;
+        private int socketTimeout = 30_000;
+        private int idleTimeout = 60_000;
+        private int evictPollPeriod = 1_000;
+        private int maxConnections;
+        private int maxWait;
+        private boolean fair;
+        private int minIdle;
+        private int maxLifetime;
+        private int validateAfterInactivity;
+        private ClientListener listener = ClientListener.NOOP;
+        private ThreadFactory threadFactory;
+
+        private Builder() {}
+
+        public Builder resolver(Resolver resolver) {
+            this.resolver = resolver;
+            return this;
+        }
+
+        public Builder socketFactory(SocketFactory socketFactory) {
+            this.socketFactory = socketFactory;
+            return this;
+        }
+
+        public Builder tls(TlsConfig tls) {
+            this.tls = tls;
+            return this;
+        }
+
+        public Builder localAddress(HostPort localAddress) {
+            this.localAddress = localAddress;
+            return this;
+        }
+
+        public Builder remoteAddress(HostPort remoteAddress) {
+            this.remoteAddress = remoteAddress;
+            return this;
+        }
+
+        public Builder connectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder socketTimeout(int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        public Builder idleTimeout(int idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public Builder evictPollPeriod(int evictPollPeriod) {
+            this.evictPollPeriod = evictPollPeriod;
+            return this;
+        }
+
+        // borrowers beyond maxConnections wait up to maxWait millis, in arrival order when fair
+        public Builder maxConnections(int maxConnections, int maxWait, boolean fair) {
+            this.maxConnections = maxConnections;
+            this.maxWait = maxWait;
+            this.fair = fair;
+            return this;
+        }
+
+        public Builder minIdle(int minIdle) {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        public Builder maxLifetime(int maxLifetime) {
+            this.maxLifetime = maxLifetime;
+            return this;
+        }
+
+        public Builder validateAfterInactivity(int validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+            return this;
+        }
+
+        public Builder listener(ClientListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        public PoolConfig build() {
+            return new PoolConfig(this);
+        }
+    }
+
+}
@@ -2,4 +2,15 @@ package org.microhttp.client;
 
 import java.util.List;
 
-public record Request(String method, String uri, List<Header> headers, byte[] body) {}
\ No newline at end of file
+// with a template, headers holds only the per-request headers, the template's fixed ones are written first
+public record Request(String method, String uri, List<Header> headers, RequestBody body, RequestTemplate template) {
+
+    public Request(String method, String uri, List<Header> headers, RequestBody body) {
+        this(method, uri, headers, body, null);
+    }
+
+    public Request(String method, String uri, List<Header> headers, byte[] body) {
+        this(method, uri, headers, RequestBody.of(body));
+    }
+
+}
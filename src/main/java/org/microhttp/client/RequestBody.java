@@ -0,0 +1,57 @@
+package org.microhttp.client;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public sealed interface RequestBody {
+
+    long UNKNOWN_LENGTH = -1;
+
+    // bodies of unknown length are sent with chunked transfer encoding
+    long length();
+
+    static RequestBody of(byte[] bytes) {
+        return new Bytes(bytes);
+    }
+
+    static RequestBody of(ByteBuffer buffer) {
+        return new Buffer(buffer);
+    }
+
+    static RequestBody of(InputStream in) {
+        return new Stream(in, UNKNOWN_LENGTH);
+    }
+
+    static RequestBody of(InputStream in, long length) {
+        return new Stream(in, length);
+    }
+
+    static RequestBody of(FileChannel channel, long position, long count) {
+        return new FileRegion(channel, position, count);
+    }
+
+    record Bytes(byte[] bytes) implements RequestBody {
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+    }
+
+    record Buffer(ByteBuffer buffer) implements RequestBody {
+        @Override
+        public long length() {
+            return buffer.remaining();
+        }
+    }
+
+    record Stream(InputStream in, long length) implements RequestBody {}
+
+    record FileRegion(FileChannel channel, long position, long count) implements RequestBody {
+        @Override
+        public long length() {
+            return count;
+        }
+    }
+
+}
@@ -1,29 +1,355 @@
 package org.microhttp.client;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
 class RequestSerializer {
 
     static final byte[] COLON_SPACE = ": ".getBytes();
     static final byte[] SPACE = " ".getBytes();
     static final byte[] CRLF = "\r\n".getBytes();
     static final byte[] VERSION = "HTTP/1.1".getBytes();
+    static final byte[] TRANSFER_ENCODING_CHUNKED = "Transfer-Encoding: chunked\r\n".getBytes();
+    static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes();
+
+    static final String HEADER_TRANSFER_ENCODING = "Transfer-Encoding";
+    static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    static final byte[] CONTENT_LENGTH_PREFIX = "Content-Length: ".getBytes();
+    static final byte[] ACCEPT_ENCODING = ("Accept-Encoding: " + ContentDecoder.ACCEPT_ENCODING + "\r\n").getBytes();
+    static final byte[] CONTENT_ENCODING_GZIP = ("Content-Encoding: " + ContentEncoder.GZIP + "\r\n").getBytes();
+
+    // common names with their separator, encoded once
+    private static final Map<String, byte[]> HEADER_NAMES = Map.ofEntries(
+            headerName("Host"),
+            headerName("Accept"),
+            headerName("Accept-Encoding"),
+            headerName("Authorization"),
+            headerName("Cache-Control"),
+            headerName("Connection"),
+            headerName("Content-Encoding"),
+            headerName("Content-Length"),
+            headerName("Content-Type"),
+            headerName("Cookie"),
+            headerName("User-Agent"));
+
+    // room for eight hex digits and CR-LF ahead of each chunk
+    private static final int CHUNK_HEADER_SIZE = 10;
+    private static final int FALLBACK_CHUNK_SIZE = 512; // data per chunk when the scratch buffer leaves no room
+
+    // writes the head through the scratch buffer, then streams the body without a whole-payload copy, returns bytes written
+    static long write(Request request, OutputStream out, WritableByteChannel channel, byte[] scratch) throws IOException {
+        return write(request, out, channel, scratch, false);
+    }
+
+    // acceptEncoding offers the codings ContentDecoder handles, unless the request names its own
+    static long write(
+            Request request,
+            OutputStream out,
+            WritableByteChannel channel,
+            byte[] scratch,
+            boolean acceptEncoding) throws IOException {
+        return write(request, out, channel, scratch, acceptEncoding, null);
+    }
 
-    static byte[] serialize(Request request) {
-        var merger = new ByteMerger();
-        merger.add(request.method().getBytes());
-        merger.add(SPACE);
-        merger.add(request.uri().getBytes());
-        merger.add(SPACE);
-        merger.add(VERSION);
-        merger.add(CRLF);
+    // with an encoder, bodies it accepts are sent gzipped with Content-Length when in memory, chunked when streamed
+    static long write(
+            Request request,
+            OutputStream out,
+            WritableByteChannel channel,
+            byte[] scratch,
+            boolean acceptEncoding,
+            ContentEncoder encoder) throws IOException {
+        var sink = new Sink(out, scratch);
+        var template = request.template();
+        var body = encoder != null && encodable(request) ? encoder.encode(request.body()) : null;
+        var encoded = body != null;
+        if (!encoded) {
+            body = request.body();
+        }
+        if (template != null) {
+            sink.write(template.prefix());
+            sink.writeUri(request.uri());
+            sink.write(template.suffix());
+        } else {
+            sink.writeAscii(request.method());
+            sink.write(SPACE);
+            sink.writeUri(request.uri());
+            sink.write(SPACE);
+            sink.write(VERSION);
+            sink.write(CRLF);
+        }
+        var framed = !encoded && template != null && template.hasTransferEncoding(); // caller asked for chunked
+        var chunked = body.length() < 0 && !framed;
+        var contentLength = (encoded || template != null && !template.hasContentLength()) && body.length() > 0 && !framed;
+        acceptEncoding &= template == null || !template.hasAcceptEncoding();
         for (var header : request.headers()) {
-            merger.add(header.name().getBytes());
-            merger.add(COLON_SPACE);
-            merger.add(header.value().getBytes());
-            merger.add(CRLF);
-        }
-        merger.add(CRLF);
-        merger.add(request.body());
-        return merger.merge();
+            if (encoded && isFraming(header)) {
+                continue; // caller framing describes the unencoded body
+            }
+            if (header.name().equalsIgnoreCase(HEADER_TRANSFER_ENCODING)) { // caller-provided framing wins
+                framed = true;
+                chunked = false;
+                contentLength = false;
+            }
+            contentLength &= !header.name().equalsIgnoreCase(HEADER_CONTENT_LENGTH);
+            acceptEncoding &= !header.name().equalsIgnoreCase(HEADER_ACCEPT_ENCODING);
+            var name = HEADER_NAMES.get(header.name());
+            if (name != null) {
+                sink.write(name);
+            } else {
+                sink.writeAscii(header.name());
+                sink.write(COLON_SPACE);
+            }
+            sink.writeAscii(header.value());
+            sink.write(CRLF);
+        }
+        if (encoded) {
+            sink.write(CONTENT_ENCODING_GZIP);
+        }
+        if (chunked) {
+            sink.write(TRANSFER_ENCODING_CHUNKED);
+        }
+        if (acceptEncoding) {
+            sink.write(ACCEPT_ENCODING);
+        }
+        if (contentLength) {
+            sink.write(CONTENT_LENGTH_PREFIX);
+            sink.writeAscii(Long.toString(body.length()));
+            sink.write(CRLF);
+        }
+        sink.write(CRLF);
+        if (framed && !(body instanceof RequestBody.Stream)) { // a Transfer-Encoding header is matched by the body
+            writeChunked(sink, stream(body));
+        } else if (body instanceof RequestBody.Bytes b) {
+            sink.write(b.bytes());
+        } else if (body instanceof RequestBody.Buffer b) {
+            writeBuffer(sink, b);
+        } else if (body instanceof RequestBody.Stream s && encoded) {
+            try (var in = s.in()) { // returns the deflater even when the write fails
+                writeChunked(sink, in);
+            }
+        } else if (body instanceof RequestBody.Stream s && (s.length() < 0 || framed)) {
+            writeChunked(sink, s.in());
+        } else if (body instanceof RequestBody.Stream s) {
+            writeStream(sink, s);
+        } else if (body instanceof RequestBody.FileRegion f) {
+            sink.flush();
+            writeFileRegion(f, channel == null ? Channels.newChannel(out) : channel);
+            sink.written += f.count();
+        }
+        sink.flush();
+        return sink.written;
+    }
+
+    // a body already encoded by the caller, or a template fixing its length, is sent as given
+    private static boolean encodable(Request request) {
+        var template = request.template();
+        if (template != null
+                && (template.hasContentLength() || template.hasContentEncoding() || template.hasTransferEncoding())) {
+            return false;
+        }
+        for (var header : request.headers()) {
+            if (header.name().equalsIgnoreCase(HEADER_CONTENT_ENCODING)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // bodies of known length as a stream, for chunking under caller framing
+    private static InputStream stream(RequestBody body) {
+        if (body instanceof RequestBody.Bytes b) {
+            return new ByteArrayInputStream(b.bytes());
+        } else if (body instanceof RequestBody.Buffer b) {
+            var buffer = b.buffer().duplicate();
+            var bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new ByteArrayInputStream(bytes);
+        }
+        return ContentEncoder.regionStream((RequestBody.FileRegion) body);
+    }
+
+    private static boolean isFraming(Header header) {
+        return header.name().equalsIgnoreCase(HEADER_CONTENT_LENGTH)
+                || header.name().equalsIgnoreCase(HEADER_TRANSFER_ENCODING);
+    }
+
+    private static Map.Entry<String, byte[]> headerName(String name) {
+        var out = new ByteArrayOutputStream();
+        writeAscii(out, name);
+        out.writeBytes(COLON_SPACE);
+        return Map.entry(name, out.toByteArray());
+    }
+
+    // header text is ISO-8859-1, chars beyond it are rejected rather than sent altered, no charset encoder involved
+    static void writeAscii(ByteArrayOutputStream out, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            out.write(toByte(s.charAt(i)));
+        }
+    }
+
+    private static byte toByte(char c) {
+        if (c > 0xFF) {
+            throw new IllegalArgumentException("character U+%04X cannot be sent in a header".formatted((int) c));
+        }
+        return (byte) c;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeBuffer(Sink sink, RequestBody.Buffer body) throws IOException {
+        var buffer = body.buffer().duplicate(); // leave caller's position untouched
+        if (buffer.hasArray()) {
+            sink.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+        while (buffer.hasRemaining()) {
+            var len = Math.min(buffer.remaining(), sink.free());
+            buffer.get(sink.buf, sink.pos, len);
+            sink.pos += len;
+            if (sink.free() == 0) {
+                sink.flush();
+            }
+        }
+    }
+
+    private static void writeStream(Sink sink, RequestBody.Stream body) throws IOException {
+        var remaining = body.length();
+        while (remaining > 0) {
+            if (sink.free() == 0) {
+                sink.flush();
+            }
+            var n = body.in().read(sink.buf, sink.pos, (int) Math.min(sink.free(), remaining));
+            if (n < 0) {
+                throw new EOFException("request body ended before declared length");
+            }
+            sink.pos += n;
+            remaining -= n;
+        }
+    }
+
+    private static void writeChunked(Sink sink, InputStream in) throws IOException {
+        sink.flush();
+        var buf = sink.buf.length > CHUNK_HEADER_SIZE + CRLF.length
+                ? sink.buf
+                : new byte[CHUNK_HEADER_SIZE + FALLBACK_CHUNK_SIZE + CRLF.length];
+        var capacity = buf.length - CHUNK_HEADER_SIZE - CRLF.length;
+        int n;
+        while ((n = in.read(buf, CHUNK_HEADER_SIZE, capacity)) >= 0) {
+            if (n == 0) { // a stream with nothing ready, block on a single byte rather than spin
+                var b = in.read();
+                if (b < 0) {
+                    break;
+                }
+                buf[CHUNK_HEADER_SIZE] = (byte) b;
+                n = 1;
+            }
+            // size line is written right-aligned ahead of the data, so each chunk is a single write
+            var size = Integer.toHexString(n);
+            var start = CHUNK_HEADER_SIZE - CRLF.length - size.length();
+            for (int i = 0; i < size.length(); i++) {
+                buf[start + i] = (byte) size.charAt(i);
+            }
+            System.arraycopy(CRLF, 0, buf, CHUNK_HEADER_SIZE - CRLF.length, CRLF.length);
+            System.arraycopy(CRLF, 0, buf, CHUNK_HEADER_SIZE + n, CRLF.length);
+            sink.writeThrough(buf, start, CHUNK_HEADER_SIZE + n + CRLF.length - start);
+        }
+        sink.write(LAST_CHUNK);
+    }
+
+    private static void writeFileRegion(RequestBody.FileRegion body, WritableByteChannel channel) throws IOException {
+        var position = body.position();
+        var end = position + body.count();
+        while (position < end) { // transferTo is zero-copy when the target is a socket channel
+            var n = body.channel().transferTo(position, end - position, channel);
+            if (n <= 0 && position >= body.channel().size()) {
+                throw new EOFException("file region ends beyond end of file");
+            }
+            position += n;
+        }
+    }
+
+    private static class Sink {
+        final OutputStream out;
+        final byte[] buf;
+        int pos;
+        long written;
+
+        Sink(OutputStream out, byte[] buf) {
+            this.out = out;
+            this.buf = buf;
+        }
+
+        int free() {
+            return buf.length - pos;
+        }
+
+        void writeAscii(String s) throws IOException {
+            for (int i = 0, n = s.length(); i < n; ) {
+                if (free() == 0) {
+                    flush();
+                }
+                var end = Math.min(n, i + free());
+                for (; i < end; i++) {
+                    buf[pos++] = toByte(s.charAt(i));
+                }
+            }
+        }
+
+        // the request target goes out as UTF-8, as String.getBytes sent it before the ASCII fast path
+        void writeUri(String uri) throws IOException {
+            if (isAscii(uri)) {
+                writeAscii(uri);
+            } else {
+                write(uri.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        void write(byte[] b) throws IOException {
+            write(b, 0, b.length);
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            if (len > free()) {
+                flush();
+                if (len > buf.length) { // larger than scratch, write through
+                    writeThrough(b, off, len);
+                    return;
+                }
+            }
+            System.arraycopy(b, off, buf, pos, len);
+            pos += len;
+        }
+
+        void flush() throws IOException {
+            if (pos > 0) {
+                writeThrough(buf, 0, pos);
+                pos = 0;
+            }
+        }
+
+        void writeThrough(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+        }
     }
 
 }
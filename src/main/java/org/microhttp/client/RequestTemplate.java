@@ -0,0 +1,91 @@
+package org.microhttp.client;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+// method and fixed headers encoded once, requests made from it only encode their path and per-request headers
+public final class RequestTemplate {
+
+    private final String method;
+    private final List<Header> headers;
+    private final byte[] prefix; // method and space
+    private final byte[] suffix; // space, version, CR-LF and the fixed header lines
+    private final boolean hasContentLength;
+    private final boolean hasAcceptEncoding;
+    private final boolean hasContentEncoding;
+    private final boolean hasTransferEncoding;
+
+    public RequestTemplate(String method, List<Header> headers) {
+        this.method = method;
+        this.headers = List.copyOf(headers);
+        var out = new ByteArrayOutputStream();
+        RequestSerializer.writeAscii(out, method);
+        out.writeBytes(RequestSerializer.SPACE);
+        prefix = out.toByteArray();
+        out.reset();
+        out.writeBytes(RequestSerializer.SPACE);
+        out.writeBytes(RequestSerializer.VERSION);
+        out.writeBytes(RequestSerializer.CRLF);
+        var contentLength = false;
+        var acceptEncoding = false;
+        var contentEncoding = false;
+        var transferEncoding = false;
+        for (var header : headers) {
+            contentLength |= header.name().equalsIgnoreCase(RequestSerializer.HEADER_CONTENT_LENGTH);
+            acceptEncoding |= header.name().equalsIgnoreCase(RequestSerializer.HEADER_ACCEPT_ENCODING);
+            contentEncoding |= header.name().equalsIgnoreCase(RequestSerializer.HEADER_CONTENT_ENCODING);
+            transferEncoding |= header.name().equalsIgnoreCase(RequestSerializer.HEADER_TRANSFER_ENCODING);
+            RequestSerializer.writeAscii(out, header.name());
+            out.writeBytes(RequestSerializer.COLON_SPACE);
+            RequestSerializer.writeAscii(out, header.value());
+            out.writeBytes(RequestSerializer.CRLF);
+        }
+        suffix = out.toByteArray();
+        hasContentLength = contentLength;
+        hasAcceptEncoding = acceptEncoding;
+        hasContentEncoding = contentEncoding;
+        hasTransferEncoding = transferEncoding;
+    }
+
+    public String method() {
+        return method;
+    }
+
+    public List<Header> headers() {
+        return headers;
+    }
+
+    public Request request(String uri) {
+        return request(uri, List.of(), RequestBody.of(new byte[0]));
+    }
+
+    // Content-Length is derived from a non-empty body of known length unless a header already sets it
+    public Request request(String uri, List<Header> headers, RequestBody body) {
+        return new Request(method, uri, headers, body, this);
+    }
+
+    byte[] prefix() {
+        return prefix;
+    }
+
+    byte[] suffix() {
+        return suffix;
+    }
+
+    boolean hasContentLength() {
+        return hasContentLength;
+    }
+
+    boolean hasAcceptEncoding() {
+        return hasAcceptEncoding;
+    }
+
+    boolean hasContentEncoding() {
+        return hasContentEncoding;
+    }
+
+    boolean hasTransferEncoding() {
+        return hasTransferEncoding;
+    }
+
+}
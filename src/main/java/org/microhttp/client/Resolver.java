@@ -0,0 +1,13 @@
+package org.microhttp.client;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+@FunctionalInterface
+public interface Resolver {
+
+    Resolver SYSTEM = InetAddress::getAllByName;
+
+    InetAddress[] resolve(String host) throws UnknownHostException;
+
+}
@@ -2,4 +2,19 @@ package org.microhttp.client;
 
 import java.util.List;
 
-public record Response(int status, String reason, List<Header> headers, byte[] body) {}
+public record Response(int status, String reason, List<Header> headers, byte[] body) {
+
+    // first value of the named header, case-insensitive, or null
+    public String header(String name) {
+        if (headers instanceof HeaderBlock block) { // hashed lookup, no scan
+            return block.value(name);
+        }
+        for (var h : headers) {
+            if (h.name().equalsIgnoreCase(name)) {
+                return h.value();
+            }
+        }
+        return null;
+    }
+
+}
@@ -1,8 +1,6 @@
 package org.microhttp.client;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.OptionalInt;
+import java.util.Arrays;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -10,23 +8,26 @@ class ResponseParser {
 
     private static final byte[] CRLF = "\r\n".getBytes();
     private static final byte[] SPACE = " ".getBytes();
+    private static final byte[] HTTP_1_0 = "HTTP/1.0".getBytes();
 
-    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
-    private static final String HEADER_TRANSFER_ENCODING = "Transfer-Encoding";
-    private static final String CHUNKED = "chunked";
+    // tokens of the HEADER state, lines themselves go straight into the header block
+    private static final byte[] HEADER_LINE = {':'};
+    private static final byte[] END_OF_HEAD = {};
 
     private static final int RADIX_HEX = 16;
+    private static final int MAX_INITIAL_BODY = 64 * 1_024; // a declared length alone commits no more memory than this
 
     enum State {
         VERSION(p -> p.tokenizer.next(SPACE), ResponseParser::parseVersion),
         STATUS_CODE(p -> p.tokenizer.next(SPACE), ResponseParser::parseStatusCode),
         REASON_PHRASE(p -> p.tokenizer.next(CRLF), ResponseParser::parseReasonPhrase),
-        HEADER(p -> p.tokenizer.next(CRLF), ResponseParser::parseHeader),
-        BODY(p -> p.tokenizer.next(p.contentLength), ResponseParser::parseBody),
+        HEADER(ResponseParser::nextHeaderLine, ResponseParser::parseHeader),
+        BODY(p -> p.fill(p.contentLength), ResponseParser::parseBody),
         CHUNK_SIZE(p -> p.tokenizer.next(CRLF), ResponseParser::parseChunkSize),
-        CHUNK_DATA(p -> p.tokenizer.next(p.chunkSize), ResponseParser::parseChunkData),
+        CHUNK_DATA(p -> p.fill(p.chunkSize), ResponseParser::parseChunkData),
         CHUNK_DATA_END(p -> p.tokenizer.next(CRLF), (rp, token) -> rp.parseChunkDateEnd()),
-        CHUNK_TRAILER(p -> p.tokenizer.next(CRLF), (rp, token) -> rp.parseChunkTrailer()),
+        CHUNK_TRAILER(p -> p.tokenizer.next(CRLF), ResponseParser::parseChunkTrailer),
+        BODY_UNTIL_CLOSE(ResponseParser::available, ResponseParser::parseBodyUntilClose),
         DONE(null, null);
 
         final Function<ResponseParser, byte[]> tokenSupplier;
@@ -39,37 +40,138 @@ class ResponseParser {
     }
 
     private final ByteTokenizer tokenizer;
+    private final boolean headRequest; // response to HEAD has no body whatever its framing headers say
 
     private State state = State.VERSION;
+    private boolean http10;
+    private boolean closeDelimited;
     private int contentLength;
     private int chunkSize;
     private ByteMerger chunks = new ByteMerger();
+    private byte[] data;
+    private int dataOffset;
 
     private int statusCode;
     private String reasonPhrase;
-    private List<Header> headers = new ArrayList<>();
+    private final HeaderBlock headers = new HeaderBlock();
     private byte[] body = new byte[0];
 
     ResponseParser(ByteTokenizer tokenizer) {
+        this(tokenizer, false);
+    }
+
+    ResponseParser(ByteTokenizer tokenizer, boolean headRequest) {
         this.tokenizer = tokenizer;
+        this.headRequest = headRequest;
     }
 
     boolean parse() {
         while (state != State.DONE) {
-            byte[] token = state.tokenSupplier.apply(this);
-            if (token == null) {
+            if (!step()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean parseHeaders() {
+        while (state.compareTo(State.BODY) < 0) { // states declared ahead of BODY make up the response head
+            if (!step()) {
                 return false;
             }
-            state.tokenConsumer.accept(this, token);
         }
         return true;
     }
 
+    boolean isDone() {
+        return state == State.DONE;
+    }
+
+    // a body delimited by connection close ends at EOF, any other state means the response was cut short
+    boolean endOfInput() {
+        if (state != State.BODY_UNTIL_CLOSE) {
+            return false;
+        }
+        body = chunks.merge();
+        state = State.DONE;
+        return true;
+    }
+
+    // decided once the head is parsed, a connection is reused only if the server keeps it open and the body is framed
+    boolean keepAlive() {
+        if (closeDelimited) {
+            return false;
+        }
+        var connection = headers.connection();
+        return http10 ? hasToken(connection, "keep-alive") : !hasToken(connection, "close");
+    }
+
+    // bytes of a known-length body not yet read, -1 when the remainder is unknown
+    long remaining() {
+        return switch (state) {
+            case DONE -> 0;
+            case BODY -> contentLength - dataOffset;
+            default -> -1;
+        };
+    }
+
+    // streams body bytes into dst, returns bytes copied, 0 if more input is needed, or -1 at end of body
+    int readBody(byte[] dst, int offset, int length) {
+        while (state != State.DONE) {
+            if (state == State.BODY_UNTIL_CLOSE) {
+                return tokenizer.next(dst, offset, length);
+            } else if (state == State.BODY || state == State.CHUNK_DATA) {
+                var target = state == State.BODY ? contentLength : chunkSize;
+                var n = tokenizer.next(dst, offset, Math.min(length, target - dataOffset));
+                dataOffset += n;
+                if (dataOffset == target) {
+                    dataOffset = 0;
+                    state = state == State.BODY ? State.DONE : State.CHUNK_DATA_END;
+                }
+                return n;
+            } else if (!step()) {
+                return 0;
+            }
+        }
+        return -1;
+    }
+
+    private boolean step() {
+        byte[] token = state.tokenSupplier.apply(this);
+        if (token == null) {
+            return false;
+        }
+        state.tokenConsumer.accept(this, token);
+        return true;
+    }
+
     Response response() {
         return new Response(statusCode, reasonPhrase, headers, body);
     }
 
+    // copies body bytes out of the tokenizer as they arrive, so read buffers are released early,
+    // the destination doubles as bytes arrive rather than being sized by the header up front
+    private byte[] fill(int length) {
+        if (data == null) {
+            data = new byte[Math.min(length, MAX_INITIAL_BODY)];
+        }
+        while (dataOffset < length) {
+            if (tokenizer.available() == 0) {
+                return null;
+            }
+            if (dataOffset == data.length) {
+                data = Arrays.copyOf(data, (int) Math.min(length, data.length * 2L));
+            }
+            dataOffset += tokenizer.next(data, dataOffset, data.length - dataOffset);
+        }
+        var result = data;
+        data = null;
+        dataOffset = 0;
+        return result;
+    }
+
     private void parseVersion(byte[] token) {
+        http10 = Arrays.equals(token, HTTP_1_0);
         state = State.STATUS_CODE;
     }
 
@@ -87,45 +189,34 @@ class ResponseParser {
         state = State.HEADER;
     }
 
-    private void parseHeader(byte[] token) {
-        if (token.length == 0) { // CR-LF on own line, end of headers
-            var contentLength = findContentLength();
-            if (contentLength.isEmpty()) {
-                if (hasChunkedEncodingHeader()) {
-                    state = State.CHUNK_SIZE;
-                } else {
-                    state = State.DONE;
-                }
-            } else {
-                this.contentLength = contentLength.getAsInt();
-                state = State.BODY;
-            }
-        } else {
-            headers.add(parseHeaderLine(token));
-        }
-    }
-
-    private static Header parseHeaderLine(byte[] line) {
-        int colonIndex = indexOfColon(line);
-        if (colonIndex <= 0) {
-            throw new IllegalStateException("malformed header line");
+    private byte[] nextHeaderLine() {
+        var length = tokenizer.find(CRLF);
+        if (length < 0) {
+            return null;
         }
-        int spaceIndex = colonIndex + 1;
-        while (spaceIndex < line.length && line[spaceIndex] == ' ') { // advance beyond variable-length space prefix
-            spaceIndex++;
+        if (length > 0) {
+            headers.add(tokenizer, length);
         }
-        return new Header(
-                new String(line, 0, colonIndex),
-                new String(line, spaceIndex, line.length - spaceIndex));
+        tokenizer.skip(CRLF.length);
+        return length == 0 ? END_OF_HEAD : HEADER_LINE;
     }
 
-    private static int indexOfColon(byte[] line) {
-        for (int i = 0; i < line.length; i++) {
-            if (line[i] == ':') {
-                return i;
+    private void parseHeader(byte[] token) {
+        if (token == END_OF_HEAD) { // CR-LF on own line, end of headers
+            contentLength = headers.contentLength();
+            if (headRequest || statusCode / 100 == 1 || statusCode == 204 || statusCode == 304) {
+                state = State.DONE;
+            } else if (contentLength < 0) {
+                closeDelimited = !headers.chunked();
+                state = headers.chunked()
+                        ? State.CHUNK_SIZE
+                        : State.BODY_UNTIL_CLOSE;
+            } else {
+                state = contentLength == 0
+                        ? State.DONE
+                        : State.BODY;
             }
         }
-        return -1;
     }
 
     private void parseChunkSize(byte[] token) {
@@ -148,33 +239,46 @@ class ResponseParser {
         state = State.CHUNK_SIZE;
     }
 
-    private void parseChunkTrailer() {
+    // trailer fields are skipped line by line, the empty line ends the response
+    private void parseChunkTrailer(byte[] token) {
+        if (token.length > 0) {
+            return;
+        }
         body = chunks.merge();
         state = State.DONE;
     }
 
-    private void parseBody(byte[] token) {
-        body = token;
-        state = State.DONE;
+    // hands over whatever is buffered, the body ends only when the server closes the connection
+    private byte[] available() {
+        var n = tokenizer.available();
+        if (n == 0) {
+            return null;
+        }
+        var token = new byte[n];
+        tokenizer.next(token, 0, n);
+        return token;
     }
 
-    private OptionalInt findContentLength() {
-        try {
-            return headers.stream()
-                    .filter(h -> h.name().equalsIgnoreCase(HEADER_CONTENT_LENGTH))
-                    .map(Header::value)
-                    .mapToInt(Integer::parseInt)
-                    .findFirst();
-        } catch (NumberFormatException e) {
-            throw new IllegalStateException("invalid content-length header value");
+    private void parseBodyUntilClose(byte[] token) {
+        chunks.add(token);
+    }
+
+    // comma-separated, case-insensitive header tokens
+    private static boolean hasToken(String value, String token) {
+        if (value == null) {
+            return false;
+        }
+        for (var part : value.split(",")) {
+            if (part.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private boolean hasChunkedEncodingHeader() {
-        return headers.stream()
-                .filter(h -> h.name().equalsIgnoreCase(HEADER_TRANSFER_ENCODING))
-                .map(Header::value)
-                .anyMatch(v -> v.equalsIgnoreCase(CHUNKED));
+    private void parseBody(byte[] token) {
+        body = token;
+        state = State.DONE;
     }
 
 }
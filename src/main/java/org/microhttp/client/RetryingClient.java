@@ -0,0 +1,310 @@
+package org.microhttp.client;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// retries idempotent requests that failed on a stale pooled connection or on connect, and optionally hedges slow ones
+class RetryingClient {
+
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE", "PUT", "DELETE");
+
+    private static final long TOKEN = 1_000; // budget balance is kept in thousandths of a retry
+    private static final long MAX_BALANCE = 100 * TOKEN; // caps the retries a long healthy stretch can bank
+    private static final int THRESHOLD_REFRESH = 64; // sends between hedge threshold recomputations
+
+    private final HttpClient client;
+    private final ConnectionPool pool;
+    private final int maxRetries;
+    private final long backoff;
+    private final long maxBackoff;
+    private final long deposit;
+    private final int minRetriesPerSecond;
+    private final double hedgePercentile;
+    private final int minHedgeSamples;
+    private final Executor executor;
+    private final Histogram latency;
+
+    private final AtomicLong balance;
+    private final AtomicLong window;
+    private final AtomicInteger windowRetries;
+    private final AtomicLong sends;
+    private volatile long hedgeThreshold; // nanos, 0 until enough samples are recorded
+
+    private final LongAdder retries;
+    private final LongAdder staleFailures;
+    private final LongAdder budgetExhausted;
+    private final LongAdder hedges;
+    private final LongAdder hedgeWins;
+
+    // backoff and maxBackoff in millis, each request earns budgetRatio of a retry on top of minRetriesPerSecond,
+    // a hedgePercentile of 0 or a null executor disables hedging
+    RetryingClient(
+            HttpClient client,
+            ConnectionPool pool,
+            int maxRetries,
+            int backoff,
+            int maxBackoff,
+            double budgetRatio,
+            int minRetriesPerSecond,
+            double hedgePercentile,
+            int minHedgeSamples,
+            Executor executor) {
+        this.client = client;
+        this.pool = pool;
+        this.maxRetries = maxRetries;
+        this.backoff = TimeUnit.MILLISECONDS.toNanos(backoff);
+        this.maxBackoff = TimeUnit.MILLISECONDS.toNanos(maxBackoff);
+        this.deposit = (long) (budgetRatio * TOKEN);
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeSamples = minHedgeSamples;
+        this.executor = executor;
+        latency = new Histogram();
+        balance = new AtomicLong();
+        window = new AtomicLong(System.nanoTime());
+        windowRetries = new AtomicInteger();
+        sends = new AtomicLong();
+        retries = new LongAdder();
+        staleFailures = new LongAdder();
+        budgetExhausted = new LongAdder();
+        hedges = new LongAdder();
+        hedgeWins = new LongAdder();
+    }
+
+    long retries() {
+        return retries.longValue();
+    }
+
+    // failures on a reused connection the server had already closed
+    long staleFailures() {
+        return staleFailures.longValue();
+    }
+
+    // retryable failures surfaced because the budget was spent
+    long budgetExhausted() {
+        return budgetExhausted.longValue();
+    }
+
+    long hedges() {
+        return hedges.longValue();
+    }
+
+    // hedged attempts that answered before the original
+    long hedgeWins() {
+        return hedgeWins.longValue();
+    }
+
+    // response latency of successful attempts, the source of the hedge threshold
+    Histogram latency() {
+        return latency;
+    }
+
+    Response send(Request request) throws IOException {
+        var retryable = retryable(request);
+        refresh();
+        deposit();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                var threshold = hedgeThreshold;
+                return retryable && threshold > 0 && executor != null
+                        ? hedged(request, threshold)
+                        : attempt(request);
+            } catch (StaleConnectionException e) {
+                staleFailures.increment();
+                retry(e.getCause(), retryable, attempt, attempt == 0); // first retry after a stale failure is immediate
+            } catch (ConnectException e) {
+                retry(e, retryable, attempt, false);
+            }
+        }
+    }
+
+    private Response attempt(Request request) throws IOException {
+        var start = System.nanoTime();
+        var connection = pool.borrow();
+        var reused = connection.borrowCounter() > 1;
+        try {
+            var response = client.send(connection, request);
+            latency.record(System.nanoTime() - start);
+            return response;
+        } catch (EOFException | SocketException e) { // timeouts are not stale, the server may still be working
+            throw reused ? new StaleConnectionException(e) : e;
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    // a second attempt on another connection once the first outlasts the threshold, the first response wins,
+    // hedges draw on the retry budget so a slow backend does not see its load doubled
+    private Response hedged(Request request, long threshold) throws IOException {
+        var first = CompletableFuture.supplyAsync(() -> attemptUnchecked(request), executor);
+        try {
+            try {
+                return first.get(threshold, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (!withdraw()) {
+                    return first.get();
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw unwrap(e);
+        }
+        hedges.increment();
+        var result = new CompletableFuture<Response>();
+        var pending = new AtomicInteger(2);
+        var won = new AtomicBoolean();
+        first.whenComplete((r, e) -> complete(result, pending, won, r, e, false));
+        CompletableFuture.supplyAsync(() -> attemptUnchecked(request), executor)
+                .whenComplete((r, e) -> complete(result, pending, won, r, e, true));
+        try {
+            return result.get(); // the loser finishes on its own and releases its connection
+        } catch (InterruptedException | ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private void complete(
+            CompletableFuture<Response> result,
+            AtomicInteger pending,
+            AtomicBoolean won,
+            Response r,
+            Throwable e,
+            boolean hedge) {
+        if (e == null) {
+            if (won.compareAndSet(false, true)) {
+                if (hedge) {
+                    hedgeWins.increment(); // counted ahead of completion, so the caller sees it
+                }
+                result.complete(r);
+            }
+        } else if (pending.decrementAndGet() == 0) { // both failed, the later failure is reported
+            result.completeExceptionally(e);
+        }
+    }
+
+    private Response attemptUnchecked(Request request) {
+        try {
+            return attempt(request);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void retry(IOException e, boolean retryable, int attempt, boolean immediate) throws IOException {
+        if (!retryable || attempt >= maxRetries) {
+            throw e;
+        }
+        if (!withdraw()) {
+            budgetExhausted.increment();
+            throw e;
+        }
+        retries.increment();
+        if (!immediate) {
+            sleep(attempt);
+        }
+    }
+
+    // exponential with full jitter, so clients failing together do not retry together
+    private void sleep(int attempt) throws IOException {
+        var cap = Math.min(maxBackoff, backoff << Math.min(attempt, 30));
+        if (cap <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(cap));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted during retry backoff");
+        }
+    }
+
+    private void deposit() {
+        long b;
+        do {
+            b = balance.get();
+            if (b >= MAX_BALANCE) {
+                return;
+            }
+        } while (!balance.compareAndSet(b, Math.min(MAX_BALANCE, b + deposit)));
+    }
+
+    // a fixed allowance per second first, then retries earned by past requests
+    private boolean withdraw() {
+        var now = System.nanoTime();
+        var start = window.get();
+        if (now - start >= TimeUnit.SECONDS.toNanos(1) && window.compareAndSet(start, now)) {
+            windowRetries.set(0);
+        }
+        if (windowRetries.incrementAndGet() <= minRetriesPerSecond) {
+            return true;
+        }
+        long b;
+        do {
+            b = balance.get();
+            if (b < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(b, b - TOKEN));
+        return true;
+    }
+
+    // percentile scans every bucket, so the threshold is recomputed periodically rather than per request
+    private void refresh() {
+        if (hedgePercentile <= 0 || sends.getAndIncrement() % THRESHOLD_REFRESH != 0) {
+            return;
+        }
+        hedgeThreshold = latency.count() >= minHedgeSamples ? latency.percentile(hedgePercentile) : 0;
+    }
+
+    // bodies read from a stream cannot be sent twice
+    private static boolean retryable(Request request) {
+        return IDEMPOTENT_METHODS.contains(request.method()) && !(request.body() instanceof RequestBody.Stream);
+    }
+
+    private static IOException unwrap(Exception e) {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            return new InterruptedIOException("interrupted waiting for response");
+        }
+        Throwable cause = e;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        if (cause instanceof RuntimeException re) {
+            throw re;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    // marks a failure on a reused connection, unwrapped before it reaches the caller
+    private static class StaleConnectionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StaleConnectionException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+}
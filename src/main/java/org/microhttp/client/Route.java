@@ -0,0 +1,13 @@
+package org.microhttp.client;
+
+public record Route(String scheme, HostPort remoteAddress, HostPort localAddress) {
+
+    public Route(String scheme, HostPort remoteAddress) {
+        this(scheme, remoteAddress, null);
+    }
+
+    boolean secure() {
+        return "https".equalsIgnoreCase(scheme);
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.microhttp.client;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// fixed set of slots holding reusable objects, claimed and returned by CAS without locking
+class Slab<T> {
+
+    private final AtomicReferenceArray<T> slots;
+
+    Slab(int capacity) {
+        slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    // null when every slot is empty
+    T poll() {
+        var start = probe();
+        for (int i = 0; i < slots.length(); i++) {
+            var index = (start + i) % slots.length();
+            var item = slots.get(index);
+            if (item != null && slots.compareAndSet(index, item, null)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    // false when every slot is taken, the caller disposes of the item
+    boolean offer(T item) {
+        var start = probe();
+        for (int i = 0; i < slots.length(); i++) {
+            var index = (start + i) % slots.length();
+            if (slots.get(index) == null && slots.compareAndSet(index, null, item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // threads start probing at different slots to spread CAS traffic across the slab
+    private int probe() {
+        if (slots.length() == 0) {
+            return 0;
+        }
+        var hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return Math.floorMod(hash >>> 32, slots.length());
+    }
+
+}
@@ -0,0 +1,15 @@
+package org.microhttp.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public record StreamingResponse(int status, String reason, List<Header> headers, InputStream body) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.microhttp.client;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// hashed timing wheel, one thread serves every scheduled timeout at tick granularity
+class TimerWheel implements AutoCloseable {
+
+    private final long tick;
+    private final ArrayDeque<Timeout>[] buckets; // confined to the worker thread
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pending;
+    private final ThreadFactory threadFactory;
+
+    private volatile boolean closed;
+    private Thread worker;
+
+    // wheelSize is rounded up to a power of two, timeouts beyond one revolution wait out extra rounds
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimerWheel(int tickMillis, int wheelSize, ThreadFactory threadFactory) {
+        this.tick = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        var size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        buckets = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        mask = size - 1;
+        pending = new ConcurrentLinkedQueue<>();
+        this.threadFactory = threadFactory;
+    }
+
+    void start() {
+        worker = threadFactory.newThread(this::run);
+        worker.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    // deadline in System.nanoTime terms, the task runs on the wheel thread and must not block
+    Timeout schedule(Runnable task, long deadline) {
+        var timeout = new Timeout(task, deadline);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        var start = System.nanoTime();
+        var ticks = 0L;
+        while (!closed) {
+            var sleep = start + (ticks + 1) * tick - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            transfer(start, ticks);
+            expire(buckets[(int) (ticks & mask)]);
+            ticks++;
+        }
+    }
+
+    // a timeout lands in the bucket of the tick it falls due in, or the current one if already overdue
+    private void transfer(long start, long ticks) {
+        Timeout t;
+        while ((t = pending.poll()) != null) {
+            if (t.cancelled) {
+                continue;
+            }
+            var due = Math.max(ticks, (t.deadline - start) / tick);
+            t.rounds = (due - ticks) / buckets.length;
+            buckets[(int) (due & mask)].add(t);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket) {
+        for (var it = bucket.iterator(); it.hasNext(); ) {
+            var t = it.next();
+            if (t.cancelled) {
+                it.remove();
+            } else if (t.rounds <= 0) {
+                it.remove();
+                try {
+                    t.task.run();
+                } catch (RuntimeException ignore) {} // one failing task must not stop the wheel
+            } else {
+                t.rounds--;
+            }
+        }
+    }
+
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private volatile boolean cancelled;
+        private long rounds; // worker thread only
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        // a cancelled timeout is dropped when the wheel next reaches it
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.microhttp.client;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.Socket;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.LongAdder;
+
+// one context per client so every pool shares the client session cache and its resumption tickets
+public class TlsConfig {
+
+    private final SSLSocketFactory socketFactory;
+    private final String[] protocols;
+    private final String[] cipherSuites;
+    private final LongAdder fullHandshakes;
+    private final LongAdder resumedHandshakes;
+    private final LongAdder handshakeTime;
+
+    // null protocols or cipher suites keep the provider defaults, sizes and timeouts (seconds) <= 0 keep the context's
+    public TlsConfig(SSLContext context, String[] protocols, String[] cipherSuites, int sessionCacheSize, int sessionTimeout) {
+        var sessions = context.getClientSessionContext();
+        if (sessionCacheSize > 0) {
+            sessions.setSessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout > 0) {
+            sessions.setSessionTimeout(sessionTimeout);
+        }
+        this.socketFactory = context.getSocketFactory();
+        this.protocols = protocols;
+        this.cipherSuites = cipherSuites;
+        fullHandshakes = new LongAdder();
+        resumedHandshakes = new LongAdder();
+        handshakeTime = new LongAdder();
+    }
+
+    public static TlsConfig system() {
+        try {
+            return new TlsConfig(SSLContext.getDefault(), null, null, 0, 0);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long fullHandshakes() {
+        return fullHandshakes.longValue();
+    }
+
+    public long resumedHandshakes() {
+        return resumedHandshakes.longValue();
+    }
+
+    public long handshakeTimeNanos() {
+        return handshakeTime.longValue();
+    }
+
+    // layers TLS over a connected socket, closing the socket with the returned one
+    SSLSocket handshake(Socket socket, HostPort remoteAddress, ClientListener listener) throws IOException {
+        // peer host and port key the session cache, without them nothing is ever resumed
+        var ss = (SSLSocket) socketFactory.createSocket(socket, remoteAddress.host(), remoteAddress.port(), true);
+        var params = ss.getSSLParameters();
+        params.setEndpointIdentificationAlgorithm("HTTPS"); // the certificate must name the host, not just chain to a trusted root
+        if (protocols != null) {
+            params.setProtocols(protocols);
+        }
+        if (cipherSuites != null) {
+            params.setCipherSuites(cipherSuites);
+        }
+        ss.setSSLParameters(params);
+        var startMillis = System.currentTimeMillis();
+        var start = System.nanoTime();
+        ss.startHandshake();
+        var elapsed = System.nanoTime() - start;
+        handshakeTime.add(elapsed);
+        var resumed = ss.getSession().getCreationTime() < startMillis; // resumed sessions keep their original creation time
+        (resumed ? resumedHandshakes : fullHandshakes).increment();
+        listener.handshake(remoteAddress, elapsed, resumed);
+        return ss;
+    }
+
+}
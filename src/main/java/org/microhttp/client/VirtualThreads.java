@@ -0,0 +1,44 @@
+package org.microhttp.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// virtual thread entry points, looked up reflectively since this library targets Java 17
+class VirtualThreads {
+
+    private static final ThreadFactory FACTORY = lookupFactory();
+
+    static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    // suitable for ConnectionPool and NioHttpClient, e.g. to run the eviction task on a virtual thread
+    static ThreadFactory threadFactory() {
+        if (FACTORY == null) {
+            throw new UnsupportedOperationException("virtual threads require Java 21 or later");
+        }
+        return FACTORY;
+    }
+
+    static ExecutorService newThreadPerTaskExecutor() {
+        var factory = threadFactory();
+        try {
+            var method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("virtual threads require Java 21 or later", e);
+        }
+    }
+
+    private static ThreadFactory lookupFactory() {
+        try {
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            var factory = Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            return (ThreadFactory) factory;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null; // pre-21 runtime, or preview feature not enabled
+        }
+    }
+
+}
@@ -3,6 +3,9 @@ package org.microhttp.client;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
 public class ByteTokenizerTest {
 
     @Test
@@ -32,4 +35,82 @@ public class ByteTokenizerTest {
         Assertions.assertNull(bt.next(5));
     }
 
+    @Test
+    public void testDelimiterSplitAcrossFragments() {
+        var crlf = "\r\n".getBytes();
+        var bt = new ByteTokenizer();
+        bt.add("Content-Type: text/plain\r".getBytes());
+        Assertions.assertNull(bt.next(crlf));
+        bt.add("\nContent-Length: 11".getBytes());
+        Assertions.assertArrayEquals("Content-Type: text/plain".getBytes(), bt.next(crlf));
+        Assertions.assertNull(bt.next(crlf));
+        bt.add(new byte[0]);
+        bt.add("\r".getBytes());
+        Assertions.assertNull(bt.next(crlf));
+        bt.add("\r\n".getBytes());
+        Assertions.assertArrayEquals("Content-Length: 11\r".getBytes(), bt.next(crlf));
+        Assertions.assertEquals(0, bt.available());
+    }
+
+    @Test
+    public void testIndexOf() {
+        var bytes = "abcdefghijklmnopqrstuvwxyz\r\n".getBytes();
+        for (int from = 0; from < bytes.length; from++) {
+            for (int i = from; i < bytes.length; i++) {
+                Assertions.assertEquals(i, ByteTokenizer.indexOf(bytes, from, bytes.length, bytes[i]));
+            }
+            Assertions.assertEquals(-1, ByteTokenizer.indexOf(bytes, from, bytes.length, (byte) ' '));
+        }
+        Assertions.assertEquals(-1, ByteTokenizer.indexOf(bytes, 0, 10, (byte) 'z'));
+        Assertions.assertEquals(3, ByteTokenizer.indexOf(new byte[]{1, 2, 3, (byte) 0x80, 0, (byte) 0x80}, 0, 6, (byte) 0x80));
+    }
+
+    @Test
+    public void testConsumedBuffersReleased() {
+        var bt = new ByteTokenizer();
+        bt.add("hello ".getBytes());
+        bt.add("world\r\n".getBytes());
+        Assertions.assertArrayEquals("hello".getBytes(), bt.next(" ".getBytes()));
+        Assertions.assertEquals(7, bt.size());
+        Assertions.assertArrayEquals("world".getBytes(), bt.next("\r\n".getBytes()));
+        Assertions.assertEquals(0, bt.size());
+        Assertions.assertEquals(0, bt.available());
+    }
+
+    @Test
+    public void testPartialTransfer() {
+        var bt = new ByteTokenizer();
+        var dst = new byte[11];
+        bt.add("hello".getBytes());
+        Assertions.assertEquals(5, bt.next(dst, 0, dst.length));
+        Assertions.assertEquals(0, bt.next(dst, 5, dst.length - 5));
+        bt.add(" world!".getBytes());
+        Assertions.assertEquals(6, bt.next(dst, 5, dst.length - 5));
+        Assertions.assertArrayEquals("hello world".getBytes(), dst);
+        Assertions.assertEquals(1, bt.available());
+        Assertions.assertArrayEquals("!".getBytes(), bt.next(1));
+        Assertions.assertEquals(0, bt.size());
+    }
+
+    @Test
+    public void testPooledReads() throws IOException {
+        var pool = new BufferPool(8, 4);
+        var in = new ByteArrayInputStream("GET /resource HTTP/1.1\r\n".getBytes()) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3)); // short reads fill the tail buffer in place
+            }
+        };
+        var bt = new ByteTokenizer();
+        byte[] token;
+        while ((token = bt.next("\r\n".getBytes())) == null) {
+            Assertions.assertTrue(bt.read(in, pool) > 0);
+        }
+        Assertions.assertArrayEquals("GET /resource HTTP/1.1".getBytes(), token);
+        Assertions.assertEquals(0, bt.size());
+        Assertions.assertEquals(-1, bt.read(in, pool));
+        Assertions.assertEquals(3, pool.misses());
+        Assertions.assertEquals(1, pool.hits()); // consumed buffers went back to the pool
+    }
+
 }
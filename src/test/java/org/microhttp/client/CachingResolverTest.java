@@ -0,0 +1,99 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingResolverTest {
+
+    @Test
+    public void testPositiveTtl() throws Exception {
+        var fake = new FakeResolver();
+        fake.put("a", 1);
+        var resolver = new CachingResolver(fake, 20, 0, 0, Runnable::run);
+        Assertions.assertArrayEquals(addresses(1), resolver.resolve("a"));
+        Assertions.assertArrayEquals(addresses(1), resolver.resolve("a"));
+        Assertions.assertEquals(1, fake.lookups.get());
+        Thread.sleep(30);
+        fake.put("a", 2);
+        Assertions.assertArrayEquals(addresses(2), resolver.resolve("a"));
+        Assertions.assertEquals(2, fake.lookups.get());
+        Assertions.assertEquals(1, resolver.hits());
+        Assertions.assertEquals(2, resolver.misses());
+    }
+
+    @Test
+    public void testNegativeTtl() throws Exception {
+        var fake = new FakeResolver();
+        var resolver = new CachingResolver(fake, 60_000, 20, 60_000, Runnable::run);
+        Assertions.assertThrows(UnknownHostException.class, () -> resolver.resolve("a"));
+        Assertions.assertThrows(UnknownHostException.class, () -> resolver.resolve("a"));
+        Assertions.assertEquals(1, fake.lookups.get());
+        fake.put("a", 1);
+        Thread.sleep(30);
+        Assertions.assertArrayEquals(addresses(1), resolver.resolve("a"));
+        Assertions.assertEquals(2, fake.lookups.get());
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        var fake = new FakeResolver();
+        fake.put("a", 1);
+        var refreshes = new ArrayList<Runnable>();
+        var resolver = new CachingResolver(fake, 10, 0, 60_000, refreshes::add);
+        resolver.resolve("a");
+        Thread.sleep(20);
+        fake.put("a", 2);
+        Assertions.assertArrayEquals(addresses(1), resolver.resolve("a"));
+        Assertions.assertArrayEquals(addresses(1), resolver.resolve("a"));
+        Assertions.assertEquals(1, refreshes.size()); // one refresh in flight per entry
+        Assertions.assertEquals(2, resolver.staleHits());
+        refreshes.get(0).run();
+        Assertions.assertArrayEquals(addresses(2), resolver.resolve("a"));
+        Assertions.assertEquals(1, resolver.misses());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsStaleAnswer() throws Exception {
+        var fake = new FakeResolver();
+        fake.put("a", 1);
+        var resolver = new CachingResolver(fake, 10, 0, 60_000, Runnable::run);
+        resolver.resolve("a");
+        Thread.sleep(20);
+        fake.hosts.clear();
+        Assertions.assertArrayEquals(addresses(1), resolver.resolve("a"));
+        Assertions.assertArrayEquals(addresses(1), resolver.resolve("a"));
+        Assertions.assertEquals(2, resolver.refreshFailures());
+    }
+
+    static InetAddress[] addresses(int last) throws UnknownHostException {
+        return new InetAddress[]{InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) last})};
+    }
+
+    static class FakeResolver implements Resolver {
+        final Map<String, List<InetAddress>> hosts = new ConcurrentHashMap<>();
+        final AtomicInteger lookups = new AtomicInteger();
+
+        void put(String host, int last) throws UnknownHostException {
+            hosts.put(host, List.of(addresses(last)));
+        }
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            lookups.incrementAndGet();
+            var addresses = hosts.get(host);
+            if (addresses == null) {
+                throw new UnknownHostException(host);
+            }
+            return addresses.toArray(InetAddress[]::new);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+
+public class ConnectionPoolRegistryTest {
+
+    @Test
+    public void testPoolPerRoute() throws IOException {
+        try (var first = new TestServer(ConnectionPoolTest::drain);
+             var second = new TestServer(ConnectionPoolTest::drain);
+             var registry = registry(0, 0, 60_000)) {
+            var route = new Route("http", first.address());
+            Assertions.assertSame(registry.pool(route), registry.pool(new Route("http", first.address())));
+            Assertions.assertNotSame(registry.pool(route), registry.pool(new Route("http", second.address())));
+            Assertions.assertNotSame(registry.pool(route), registry.pool(new Route("https", first.address())));
+            Assertions.assertEquals(3, registry.size());
+        }
+    }
+
+    @Test
+    public void testGlobalCapSpansRoutes() throws IOException {
+        try (var first = new TestServer(ConnectionPoolTest::drain);
+             var second = new TestServer(ConnectionPoolTest::drain);
+             var registry = registry(1, 2, 60_000)) {
+            var firstPool = registry.pool(new Route("http", first.address()));
+            var secondPool = registry.pool(new Route("http", second.address()));
+            var connection = firstPool.borrow();
+            Assertions.assertThrows(SocketTimeoutException.class, firstPool::borrow);
+            Assertions.assertThrows(SocketTimeoutException.class, secondPool::borrow);
+            firstPool.release(connection);
+            secondPool.release(secondPool.borrow());
+            Assertions.assertEquals(1, secondPool.borrows());
+        }
+    }
+
+    @Test
+    public void testGlobalCapCountsIdle() throws IOException {
+        var servers = new ArrayList<TestServer>();
+        try (var registry = registry(2, 2, 60_000)) {
+            var pools = new ArrayList<ConnectionPool>();
+            for (int i = 0; i < 5; i++) { // each route leaves its connection idle, older ones are reclaimed
+                var server = new TestServer(ConnectionPoolTest::drain);
+                servers.add(server);
+                var pool = registry.pool(new Route("http", server.address()));
+                pool.release(pool.borrow());
+                pools.add(pool);
+            }
+            var idle = 0;
+            for (var pool : pools) {
+                idle += pool.idle();
+            }
+            Assertions.assertEquals(2, idle);
+            Assertions.assertEquals(1, pools.get(4).idle());
+        } finally {
+            for (var server : servers) {
+                server.close();
+            }
+        }
+    }
+
+    @Test
+    public void testHttpsRequiresTls() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain);
+             var registry = new ConnectionPoolRegistry(PoolConfig.builder().build(), 0, 60_000)) {
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> registry.pool(new Route("https", server.address())));
+            Assertions.assertNotNull(registry.pool(new Route("http", server.address())));
+        }
+    }
+
+    @Test
+    public void testIdlePoolDropped() throws Exception {
+        try (var server = new TestServer(ConnectionPoolTest::drain);
+             var registry = registry(0, 0, 0)) {
+            var route = new Route("http", server.address());
+            var pool = registry.pool(route);
+            var connection = pool.borrow();
+            registry.evict();
+            Assertions.assertEquals(1, registry.size()); // borrowed connection keeps the pool alive
+            connection.tryClose();
+            pool.release(connection);
+            registry.evict();
+            Thread.sleep(1);
+            registry.evict();
+            Assertions.assertEquals(0, registry.size());
+            Assertions.assertNotSame(pool, registry.pool(route));
+        }
+    }
+
+    static ConnectionPoolRegistry registry(int maxConnections, int maxConnectionsPerRoute, int poolIdleTimeout) {
+        return new ConnectionPoolRegistry(
+                PoolConfig.builder()
+                        .tls(TlsConfig.system())
+                        .connectTimeout(1_000)
+                        .socketTimeout(5_000)
+                        .idleTimeout(10_000)
+                        .maxConnections(maxConnectionsPerRoute, 50, true)
+                        .threadFactory(Thread::new)
+                        .build(),
+                maxConnections,
+                poolIdleTimeout);
+    }
+
+}
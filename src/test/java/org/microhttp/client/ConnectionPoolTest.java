@@ -0,0 +1,252 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectionPoolTest {
+
+    @Test
+    public void testLastReleasedBorrowedFirst() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 0, 0);
+            var first = cp.borrow();
+            var second = cp.borrow();
+            cp.release(first);
+            cp.release(second);
+            Assertions.assertSame(second.socket(), cp.borrow().socket());
+            Assertions.assertSame(first.socket(), cp.borrow().socket());
+            Assertions.assertEquals(0, cp.idle());
+        }
+    }
+
+    @Test
+    public void testBorrowTimesOutAtLimit() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 1, 50);
+            var connection = cp.borrow();
+            Assertions.assertThrows(SocketTimeoutException.class, cp::borrow);
+            Assertions.assertEquals(1, cp.waits());
+            Assertions.assertEquals(1, cp.timeouts());
+            Assertions.assertTrue(cp.waitTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+            cp.release(connection);
+            Assertions.assertSame(connection.socket(), cp.borrow().socket());
+        }
+    }
+
+    @Test
+    public void testBorrowWaitsForRelease() throws Exception {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 1, 5_000);
+            var connection = cp.borrow();
+            var waiter = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cp.borrow();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            while (cp.waits() == 0) {
+                Thread.onSpinWait();
+            }
+            cp.release(connection);
+            Assertions.assertSame(connection.socket(), waiter.get(5, TimeUnit.SECONDS).socket());
+            Assertions.assertEquals(0, cp.timeouts());
+        }
+    }
+
+    @Test
+    public void testFairBorrowDoesNotBarge() throws Exception {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 1, 5_000);
+            var order = new CopyOnWriteArrayList<String>();
+            var connection = cp.borrow();
+            var waiter = CompletableFuture.runAsync(() -> {
+                try {
+                    var c = cp.borrow();
+                    order.add("waiter");
+                    cp.release(c);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            while (cp.waits() == 0) {
+                Thread.onSpinWait();
+            }
+            Thread.sleep(50); // parked on the semaphore
+            cp.release(connection);
+            cp.release(cp.borrow()); // queues behind the waiter rather than taking the freed permit
+            order.add("main");
+            waiter.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(List.of("waiter", "main"), order);
+        }
+    }
+
+    @Test
+    public void testClosedConnectionReturnsPermit() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 1, 0);
+            var connection = cp.borrow();
+            connection.tryClose();
+            cp.release(connection);
+            Assertions.assertEquals(0, cp.idle());
+            Assertions.assertNotSame(connection.socket(), cp.borrow().socket());
+        }
+    }
+
+    @Test
+    public void testClosedIdleConnectionSkipped() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 0, 0);
+            var connection = cp.borrow();
+            cp.release(connection);
+            connection.tryClose(); // closed while pooled, as an aborting deadline would
+            Assertions.assertNotSame(connection.socket(), cp.borrow().socket());
+        }
+    }
+
+    @Test
+    public void testPrewarm() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 0, 0);
+            Assertions.assertEquals(3, cp.prewarm(3));
+            Assertions.assertEquals(3, cp.idle());
+            Assertions.assertEquals(2, cp.borrow().borrowCounter()); // handed out warm
+        }
+    }
+
+    @Test
+    public void testPrewarmCappedByMaxConnections() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 2, 0);
+            Assertions.assertEquals(2, cp.prewarm(3));
+            var first = cp.borrow();
+            var second = cp.borrow();
+            Assertions.assertEquals(0, cp.prewarm(1)); // both connections are out, none may be added
+            Assertions.assertEquals(0, cp.idle());
+            cp.release(first);
+            cp.release(second);
+            Assertions.assertEquals(2, cp.idle());
+        }
+    }
+
+    @Test
+    public void testMinIdleTopUp() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = tunedPool(server, 2, 0, 0);
+            cp.maintain();
+            Assertions.assertEquals(2, cp.idle());
+            var connection = cp.borrow();
+            connection.tryClose();
+            cp.release(connection);
+            Assertions.assertEquals(1, cp.idle());
+            cp.maintain();
+            Assertions.assertEquals(2, cp.idle());
+            Assertions.assertEquals(3, cp.topUps());
+        }
+    }
+
+    @Test
+    public void testIdleTimeoutInMillis() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = boundedPool(server, 0, 0);
+            cp.release(cp.borrow());
+            cp.purgeExpired();
+            Assertions.assertEquals(1, cp.idle());
+            Assertions.assertEquals(0, cp.evictions());
+        }
+    }
+
+    @Test
+    public void testMaxLifetime() throws Exception {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = tunedPool(server, 0, 1, 0);
+            var connection = cp.borrow();
+            Thread.sleep(5);
+            cp.release(connection);
+            Assertions.assertEquals(0, cp.idle());
+            Assertions.assertEquals(1, cp.evictions());
+            Assertions.assertTrue(connection.socket().isClosed());
+        }
+    }
+
+    @Test
+    public void testStaleConnectionDiscarded() throws Exception {
+        try (var server = new TestServer(socket -> {})) { // closes each connection straight away
+            var cp = tunedPool(server, 0, 0, 1);
+            var connection = cp.borrow();
+            cp.release(connection);
+            Thread.sleep(50);
+            Assertions.assertNotSame(connection.socket(), cp.borrow().socket());
+            Assertions.assertEquals(1, cp.staleDiscards());
+            Assertions.assertTrue(connection.socket().isClosed());
+        }
+    }
+
+    @Test
+    public void testLiveConnectionValidated() throws Exception {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = tunedPool(server, 0, 0, 1);
+            var connection = cp.borrow();
+            cp.release(connection);
+            Thread.sleep(5);
+            var reused = cp.borrow();
+            Assertions.assertSame(connection.socket(), reused.socket());
+            Assertions.assertEquals(5_000, reused.socket().getSoTimeout());
+            Assertions.assertEquals(0, cp.staleDiscards());
+        }
+    }
+
+    @Test
+    public void testConnectsThroughResolver() throws IOException {
+        try (var server = new TestServer(ConnectionPoolTest::drain)) {
+            var cp = new ConnectionPool(PoolConfig.builder()
+                    .resolver(host -> new InetAddress[]{InetAddress.getLoopbackAddress()})
+                    .remoteAddress(new HostPort("backend.invalid", server.port()))
+                    .connectTimeout(1_000)
+                    .socketTimeout(5_000)
+                    .idleTimeout(10_000)
+                    .threadFactory(Thread::new)
+                    .build());
+            Assertions.assertEquals(server.port(), cp.borrow().socket().getPort());
+        }
+    }
+
+    static void drain(Socket socket) throws IOException {
+        socket.getInputStream().transferTo(OutputStream.nullOutputStream());
+    }
+
+    static ConnectionPool tunedPool(TestServer server, int minIdle, int maxLifetime, int validateAfterInactivity) {
+        return new ConnectionPool(PoolConfig.builder()
+                .remoteAddress(server.address())
+                .connectTimeout(1_000)
+                .socketTimeout(5_000)
+                .idleTimeout(10_000)
+                .minIdle(minIdle)
+                .maxLifetime(maxLifetime)
+                .validateAfterInactivity(validateAfterInactivity)
+                .threadFactory(Thread::new)
+                .build());
+    }
+
+    static ConnectionPool boundedPool(TestServer server, int maxConnections, int maxWait) {
+        return new ConnectionPool(PoolConfig.builder()
+                .remoteAddress(server.address())
+                .connectTimeout(1_000)
+                .socketTimeout(5_000)
+                .idleTimeout(10_000)
+                .maxConnections(maxConnections, maxWait, true)
+                .threadFactory(Thread::new)
+                .build());
+    }
+
+}
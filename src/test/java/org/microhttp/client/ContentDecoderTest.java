@@ -0,0 +1,129 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+public class ContentDecoderTest {
+
+    @Test
+    public void testGzip() throws IOException {
+        var decoder = new ContentDecoder(1 << 20, 4);
+        var body = text(100_000);
+        Assertions.assertArrayEquals(body, decoder.decode("gzip", gzip(body)));
+        Assertions.assertArrayEquals(body, decoder.decode("GZIP", gzip(body)));
+        Assertions.assertEquals(1, decoder.misses());
+        Assertions.assertEquals(1, decoder.hits()); // inflater reused
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        var decoder = new ContentDecoder(1 << 20, 4);
+        var body = text(10_000);
+        Assertions.assertArrayEquals(body, decoder.decode("deflate", deflate(body)));
+    }
+
+    @Test
+    public void testGzipHeaderFields() throws IOException {
+        var body = text(1_000);
+        var member = gzip(body);
+        var out = new ByteArrayOutputStream();
+        out.write(new byte[]{0x1f, (byte) 0x8b, 8, 4 | 8 | 16, 0, 0, 0, 0, 0, 3}); // FEXTRA, FNAME, FCOMMENT
+        out.write(new byte[]{3, 0, 'a', 'b', 'c'});
+        out.write("name.txt\0".getBytes());
+        out.write("comment\0".getBytes());
+        out.write(member, 10, member.length - 10);
+        var decoder = new ContentDecoder(1 << 20, 4);
+        Assertions.assertArrayEquals(body, decoder.decode("gzip", out.toByteArray()));
+    }
+
+    @Test
+    public void testStreamingInSmallPieces() throws IOException {
+        var decoder = new ContentDecoder(1 << 20, 4);
+        var body = text(50_000);
+        var source = new TrickleInputStream(gzip(body));
+        try (var in = decoder.decode("gzip", source, new BufferPool(16, 4))) {
+            Assertions.assertArrayEquals(body, in.readAllBytes());
+        }
+        Assertions.assertEquals(-1, source.read()); // source drained to its end
+    }
+
+    @Test
+    public void testMaxDecodedSize() {
+        var decoder = new ContentDecoder(1_000, 4);
+        var e = Assertions.assertThrows(IOException.class, () -> decoder.decode("gzip", gzip(new byte[1_000_000])));
+        Assertions.assertTrue(e.getMessage().contains("exceeds"));
+    }
+
+    @Test
+    public void testCorruptInput() throws IOException {
+        var decoder = new ContentDecoder(1 << 20, 4);
+        var gzip = gzip(text(1_000));
+        gzip[gzip.length - 8] ^= 1; // crc
+        Assertions.assertThrows(ZipException.class, () -> decoder.decode("gzip", gzip));
+        Assertions.assertThrows(ZipException.class, () -> decoder.decode("gzip", text(100)));
+        var truncated = Arrays.copyOf(gzip(text(1_000)), 20);
+        Assertions.assertThrows(IOException.class, () -> decoder.decode("gzip", truncated));
+    }
+
+    @Test
+    public void testSupports() {
+        Assertions.assertTrue(ContentDecoder.supports("gzip"));
+        Assertions.assertTrue(ContentDecoder.supports(" Deflate "));
+        Assertions.assertFalse(ContentDecoder.supports("br"));
+        Assertions.assertFalse(ContentDecoder.supports(null));
+    }
+
+    static byte[] text(int size) {
+        var out = new byte[size];
+        for (int i = 0; i < size; i++) {
+            out[i] = (byte) ('a' + (i * 7 + i / 13) % 26);
+        }
+        return out;
+    }
+
+    static byte[] gzip(byte[] body) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] deflate(byte[] body) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var d = new DeflaterOutputStream(out, new Deflater())) {
+            d.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    // hands out at most three bytes per read
+    static class TrickleInputStream extends InputStream {
+        final ByteArrayInputStream in;
+
+        TrickleInputStream(byte[] bytes) {
+            in = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return in.read(b, off, Math.min(len, 3));
+        }
+    }
+
+}
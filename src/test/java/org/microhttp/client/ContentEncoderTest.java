@@ -0,0 +1,132 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+public class ContentEncoderTest {
+
+    @Test
+    public void testBytesCompressedWithContentLength() throws IOException {
+        var encoder = new ContentEncoder(Deflater.DEFAULT_COMPRESSION, 1_000, 4);
+        var body = ContentDecoderTest.text(50_000);
+        var request = new Request("POST", "/", List.of(
+                new Header("Host", "localhost"),
+                new Header("Content-Length", "50000")), RequestBody.of(body));
+        var out = write(request, encoder);
+        var head = head(out);
+        Assertions.assertEquals("""
+                POST / HTTP/1.1\r
+                Host: localhost\r
+                Content-Encoding: gzip\r
+                Content-Length: %d\r
+                \r
+                """.formatted(out.length - head.length()), head);
+        Assertions.assertArrayEquals(body, gunzip(Arrays.copyOfRange(out, head.length(), out.length)));
+    }
+
+    @Test
+    public void testBufferCompressed() throws IOException {
+        var encoder = new ContentEncoder(Deflater.BEST_SPEED, 0, 4);
+        var body = ContentDecoderTest.text(10_000);
+        var buffer = ByteBuffer.allocateDirect(body.length).put(body).flip();
+        var encoded = (RequestBody.Bytes) encoder.encode(RequestBody.of(buffer));
+        Assertions.assertArrayEquals(body, gunzip(encoded.bytes()));
+        Assertions.assertEquals(0, buffer.position()); // caller's buffer untouched
+    }
+
+    @Test
+    public void testBelowThresholdSentAsGiven() throws IOException {
+        var encoder = new ContentEncoder(Deflater.DEFAULT_COMPRESSION, 1_000, 4);
+        var request = new Request("POST", "/", List.of(new Header("Content-Length", "5")), RequestBody.of("hello".getBytes()));
+        Assertions.assertEquals("POST / HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello", new String(write(request, encoder)));
+        Assertions.assertEquals(0, encoder.misses());
+    }
+
+    @Test
+    public void testCallerEncodingSentAsGiven() throws IOException {
+        var encoder = new ContentEncoder(Deflater.DEFAULT_COMPRESSION, 0, 4);
+        var request = new Request("POST", "/", List.of(
+                new Header("Content-Encoding", "br"),
+                new Header("Content-Length", "5")), RequestBody.of("hello".getBytes()));
+        Assertions.assertEquals(
+                "POST / HTTP/1.1\r\nContent-Encoding: br\r\nContent-Length: 5\r\n\r\nhello",
+                new String(write(request, encoder)));
+    }
+
+    @Test
+    public void testStreamCompressedChunked() throws IOException {
+        var encoder = new ContentEncoder(Deflater.DEFAULT_COMPRESSION, 1_000, 4);
+        var body = ContentDecoderTest.text(100_000);
+        var source = new ContentDecoderTest.TrickleInputStream(body);
+        var request = new Request("POST", "/", List.of(new Header("Host", "localhost")), RequestBody.of(source, body.length));
+        var out = write(request, encoder);
+        var head = head(out);
+        Assertions.assertEquals("""
+                POST / HTTP/1.1\r
+                Host: localhost\r
+                Content-Encoding: gzip\r
+                Transfer-Encoding: chunked\r
+                \r
+                """, head);
+        Assertions.assertArrayEquals(body, gunzip(dechunk(Arrays.copyOfRange(out, head.length(), out.length))));
+        Assertions.assertEquals(1, encoder.misses());
+        write(request(ContentDecoderTest.text(5_000)), encoder);
+        Assertions.assertEquals(1, encoder.hits()); // deflater returned to the pool and reused
+    }
+
+    @Test
+    public void testDeflaterReturnedOnFailure() {
+        var encoder = new ContentEncoder(Deflater.DEFAULT_COMPRESSION, 0, 4);
+        var truncated = RequestBody.of(new ByteArrayInputStream(new byte[10]), 100);
+        var request = new Request("POST", "/", List.of(), truncated);
+        Assertions.assertThrows(IOException.class, () -> write(request, encoder));
+        Assertions.assertEquals(1, encoder.misses());
+        Assertions.assertThrows(IOException.class, () -> write(request, encoder));
+        Assertions.assertEquals(1, encoder.hits());
+    }
+
+    private static Request request(byte[] body) {
+        return new Request("POST", "/", List.of(), RequestBody.of(new ByteArrayInputStream(body)));
+    }
+
+    private static byte[] write(Request request, ContentEncoder encoder) throws IOException {
+        var out = new ByteArrayOutputStream();
+        RequestSerializer.write(request, out, null, new byte[1_024], false, encoder);
+        return out.toByteArray();
+    }
+
+    private static String head(byte[] out) {
+        var s = new String(out, StandardCharsets.ISO_8859_1);
+        return s.substring(0, s.indexOf("\r\n\r\n") + 4);
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] dechunk(byte[] bytes) {
+        var out = new ByteArrayOutputStream();
+        var s = new String(bytes, StandardCharsets.ISO_8859_1);
+        var pos = 0;
+        int size;
+        while ((size = Integer.parseInt(s.substring(pos, s.indexOf("\r\n", pos)), 16)) > 0) {
+            pos = s.indexOf("\r\n", pos) + 2;
+            out.write(bytes, pos, size);
+            pos += size + 2;
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HeaderBlockTest {
+
+    @Test
+    public void testLookup() {
+        var block = block("Content-Type: text/plain", "Set-Cookie: a=1", "set-cookie:b=2", "X-Empty:");
+        Assertions.assertEquals("text/plain", block.value("content-type"));
+        Assertions.assertEquals("a=1", block.value("SET-COOKIE"));
+        Assertions.assertEquals(List.of("a=1", "b=2"), block.values("Set-Cookie"));
+        Assertions.assertEquals("", block.value("x-empty"));
+        Assertions.assertNull(block.value("Content-Length"));
+        Assertions.assertEquals(List.of(), block.values("Missing"));
+    }
+
+    @Test
+    public void testListView() {
+        var block = block("Date: today", "Server: test");
+        Assertions.assertEquals(List.of(new Header("Date", "today"), new Header("Server", "test")), block);
+        Assertions.assertSame(block.get(0), block.get(0)); // decoded once
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> block.get(2));
+    }
+
+    @Test
+    public void testManyHeaders() {
+        var lines = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            lines.add("X-Header-" + i + ": value-" + i + "-" + "v".repeat(i));
+        }
+        var block = block(lines.toArray(String[]::new));
+        Assertions.assertEquals(100, block.size());
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals("value-" + i + "-" + "v".repeat(i), block.value("x-header-" + i));
+        }
+    }
+
+    @Test
+    public void testWellKnownHeaders() {
+        var block = block("content-length: 42", "Transfer-Encoding: CHUNKED", "Connection: close", "Content-Type: a/b");
+        Assertions.assertEquals(42, block.contentLength());
+        Assertions.assertTrue(block.chunked());
+        Assertions.assertEquals("close", block.connection());
+        Assertions.assertEquals("a/b", block.contentType());
+        var empty = block();
+        Assertions.assertEquals(-1, empty.contentLength());
+        Assertions.assertFalse(empty.chunked());
+        Assertions.assertNull(empty.connection());
+    }
+
+    @Test
+    public void testChunkedAsFinalCoding() {
+        Assertions.assertTrue(block("Transfer-Encoding: gzip, chunked").chunked());
+        Assertions.assertTrue(block("Transfer-Encoding: gzip,chunked").chunked());
+        Assertions.assertFalse(block("Transfer-Encoding: chunked, gzip").chunked());
+        Assertions.assertTrue(block("Transfer-Encoding: gzip", "Transfer-Encoding: chunked").chunked());
+        Assertions.assertFalse(block("Transfer-Encoding: gzip").chunked());
+    }
+
+    @Test
+    public void testInvalidHeaders() {
+        Assertions.assertThrows(IllegalStateException.class, () -> block("no colon"));
+        Assertions.assertThrows(IllegalStateException.class, () -> block(": no name"));
+        Assertions.assertThrows(IllegalStateException.class, () -> block("Content-Length: 1x"));
+        Assertions.assertThrows(IllegalStateException.class, () -> block("Content-Length: 99999999999"));
+    }
+
+    static HeaderBlock block(String... lines) {
+        var block = new HeaderBlock();
+        var tokenizer = new ByteTokenizer();
+        for (var line : lines) {
+            tokenizer.add(line.getBytes());
+            block.add(tokenizer, line.length());
+        }
+        return block;
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class HistogramTest {
+
+    @Test
+    public void testBucketPrecision() {
+        var random = ThreadLocalRandom.current();
+        for (int i = 0; i < 100_000; i++) {
+            var value = random.nextLong(Long.MAX_VALUE >>> random.nextInt(63));
+            var upper = Histogram.upperBound(Histogram.index(value));
+            Assertions.assertTrue(upper >= value);
+            Assertions.assertTrue(upper - value <= value / 32, value + " " + upper);
+        }
+        Assertions.assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.index(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        var histogram = new Histogram();
+        Assertions.assertEquals(0, histogram.percentile(99));
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i);
+        }
+        Assertions.assertEquals(1_000, histogram.count());
+        Assertions.assertEquals(1_000, histogram.max());
+        Assertions.assertEquals(1_000, histogram.percentile(100));
+        Assertions.assertEquals(500, histogram.percentile(50), 500 / 32);
+        Assertions.assertEquals(990, histogram.percentile(99), 990 / 32);
+        Assertions.assertEquals(1, histogram.percentile(0));
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.count());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        var histogram = new Histogram();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            var thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(40_000, histogram.count());
+        Assertions.assertEquals(9_999, histogram.max());
+    }
+
+}
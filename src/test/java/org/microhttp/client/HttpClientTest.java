@@ -3,11 +3,17 @@ package org.microhttp.client;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class HttpClientTest {
 
@@ -76,4 +82,474 @@ public class HttpClientTest {
         Assertions.assertThrows(SocketTimeoutException.class, cp::borrow, "Read timed out");
     }
 
+    @Test
+    public void testStreamingResponse() throws Exception {
+        var bodySent = new CountDownLatch(1);
+        var headSent = new CountDownLatch(1);
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            TestServer.readRequestHead(is);
+            os.write("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes());
+            os.flush();
+            headSent.await();
+            os.write("6\r\nhello \r\n5\r\nworld\r\n0\r\n\r\n".getBytes());
+            bodySent.countDown();
+            TestServer.readRequestHead(is);
+            os.write("HTTP/1.1 204 No Content\r\n\r\n".getBytes());
+            TestServer.readRequestHead(is);
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var request = new Request("GET", "/", List.of(new Header("Host", "localhost")), new byte[0]);
+            try (var response = client.stream(cp.borrow(), request, cp)) {
+                Assertions.assertEquals(200, response.status());
+                Assertions.assertEquals(1, bodySent.getCount()); // head arrived before the body was sent
+                headSent.countDown();
+                Assertions.assertArrayEquals("hello world".getBytes(), response.body().readAllBytes());
+            }
+            var connection = cp.borrow();
+            Assertions.assertEquals(2, connection.borrowCounter()); // fully read body returned the connection
+            try (var response = client.stream(connection, request, cp)) {
+                Assertions.assertEquals(204, response.status());
+                Assertions.assertEquals(-1, response.body().read());
+            }
+            Assertions.assertEquals(1, server.connections());
+        }
+    }
+
+    @Test
+    public void testStreamingResponseDiscarded() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            while (TestServer.readRequestHead(is) != null) {
+                os.write("HTTP/1.1 200 OK\r\nContent-Length: 11\r\n\r\nhello world".getBytes());
+            }
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(ClientConfig.builder()
+                    .bufferSize(4_096)
+                    .bufferPoolCapacity(16)
+                    .maxDrain(0) // no draining
+                    .build());
+            var request = new Request("GET", "/", List.of(new Header("Host", "localhost")), new byte[0]);
+            var connection = cp.borrow();
+            try (var response = client.stream(connection, request, cp)) {
+                Assertions.assertEquals('h', response.body().read());
+            }
+            Assertions.assertTrue(connection.socket().isClosed());
+            Assertions.assertEquals(1, cp.borrow().borrowCounter()); // discarded connection was not pooled
+        }
+    }
+
+    @Test
+    public void testStreamingResponseDrained() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            String head;
+            while ((head = TestServer.readRequestHead(is)) != null) {
+                var size = Integer.parseInt(head.split(" ")[1].substring(1));
+                os.write(("HTTP/1.1 200 OK\r\nContent-Length: " + size + "\r\n\r\n").getBytes());
+                os.write(new byte[size]);
+            }
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(ClientConfig.builder()
+                    .bufferSize(4_096)
+                    .bufferPoolCapacity(16)
+                    .maxDrain(10_000)
+                    .build());
+            var connection = cp.borrow();
+            try (var response = client.stream(connection, request("/5000"), cp)) {
+                Assertions.assertEquals(0, response.body().read());
+            }
+            Assertions.assertFalse(connection.socket().isClosed()); // remainder within the limit was read through
+            Assertions.assertEquals(1, cp.reuses());
+            connection = cp.borrow();
+            Assertions.assertEquals(2, connection.borrowCounter());
+            try (var response = client.stream(connection, request("/50000"), cp)) {
+                Assertions.assertEquals(0, response.body().read());
+            }
+            Assertions.assertTrue(connection.socket().isClosed()); // too much left to drain
+            Assertions.assertEquals(1, cp.discards());
+        }
+    }
+
+    @Test
+    public void testConnectionCloseNotReused() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            TestServer.readRequestHead(is);
+            os.write("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\nok".getBytes());
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var connection = cp.borrow();
+            try {
+                Assertions.assertEquals("ok", new String(client.send(connection, request("/")).body()));
+            } finally {
+                cp.release(connection);
+            }
+            Assertions.assertTrue(connection.socket().isClosed());
+            Assertions.assertEquals(0, cp.reuses());
+            Assertions.assertEquals(1, cp.discards());
+        }
+    }
+
+    @Test
+    public void testBodyDelimitedByClose() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            TestServer.readRequestHead(is);
+            os.write("HTTP/1.0 200 OK\r\n\r\nhello".getBytes());
+            os.flush();
+            os.write(" world".getBytes());
+            socket.close();
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var connection = cp.borrow();
+            try {
+                Assertions.assertEquals("hello world", new String(client.send(connection, request("/")).body()));
+            } finally {
+                cp.release(connection);
+            }
+            Assertions.assertEquals(1, cp.discards());
+            connection = cp.borrow();
+            try (var response = client.stream(connection, request("/"), cp)) {
+                Assertions.assertEquals("hello world", new String(response.body().readAllBytes()));
+            }
+            Assertions.assertEquals(2, cp.discards());
+        }
+    }
+
+    @Test
+    public void testHeadResponseWithContentLength() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            while (TestServer.readRequestHead(is) != null) {
+                os.write("HTTP/1.1 200 OK\r\nContent-Length: 11\r\n\r\n".getBytes());
+            }
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var connection = cp.borrow();
+            try {
+                var head = new Request("HEAD", "/", List.of(new Header("Host", "localhost")), new byte[0]);
+                Assertions.assertEquals(0, client.send(connection, head).body().length);
+                Assertions.assertEquals(0, client.send(connection, head).body().length);
+            } finally {
+                cp.release(connection);
+            }
+            Assertions.assertEquals(1, cp.reuses());
+        }
+    }
+
+    @Test
+    public void testMalformedResponseClosesConnection() throws Exception {
+        try (var server = new TestServer(socket -> {
+            TestServer.readRequestHead(socket.getInputStream());
+            socket.getOutputStream().write("HTTP/1.1 2x0 OK\r\nContent-Length: 2\r\n\r\nok".getBytes());
+            Thread.sleep(1_000);
+        })) {
+            var cp = localPool(server);
+            var connection = cp.borrow();
+            try {
+                Assertions.assertThrows(IllegalStateException.class, () -> new HttpClient(4_096).send(connection, request("/")));
+            } finally {
+                cp.release(connection);
+            }
+            Assertions.assertTrue(connection.socket().isClosed());
+            Assertions.assertEquals(0, cp.idle());
+        }
+    }
+
+    @Test
+    public void testPipeline() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            var uris = new ArrayList<String>();
+            for (int i = 0; i < 3; i++) { // all requests arrive before the first response is written
+                uris.add(TestServer.readRequestHead(is).split(" ")[1]);
+            }
+            for (var uri : uris) {
+                os.write(("HTTP/1.1 200 OK\r\nContent-Length: " + uri.length() + "\r\n\r\n" + uri).getBytes());
+            }
+            TestServer.readRequestHead(is);
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var requests = List.of(request("/a"), request("/bb"), request("/ccc"));
+            var connection = cp.borrow();
+            var result = client.pipeline(connection, requests, 3);
+            Assertions.assertNull(result.failure());
+            Assertions.assertEquals(List.of(), result.unanswered());
+            Assertions.assertEquals(List.of(), result.unsent());
+            Assertions.assertEquals(
+                    List.of("/a", "/bb", "/ccc"),
+                    result.responses().stream().map(r -> new String(r.body())).toList());
+            Assertions.assertFalse(connection.socket().isClosed());
+        }
+    }
+
+    @Test
+    public void testPipelineConnectionClosed() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            for (int i = 0; i < 2; i++) {
+                TestServer.readRequestHead(is);
+            }
+            os.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes());
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var requests = List.of(request("/a"), request("/b"), request("/c"), request("/d"));
+            var connection = cp.borrow();
+            var result = client.pipeline(connection, requests, 2);
+            Assertions.assertEquals(1, result.responses().size());
+            Assertions.assertEquals(requests.subList(1, 3), result.unanswered()); // written, may have run
+            Assertions.assertEquals(requests.subList(3, 4), result.unsent());
+            Assertions.assertNotNull(result.failure());
+            Assertions.assertTrue(connection.socket().isClosed());
+        }
+    }
+
+    @Test
+    public void testSendAsync() throws Exception {
+        try (var server = new TestServer(NioHttpClientTest::echoUri)) {
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var executor = VirtualThreads.isSupported()
+                    ? VirtualThreads.newThreadPerTaskExecutor()
+                    : Executors.newCachedThreadPool();
+            try {
+                var futures = new ArrayList<CompletableFuture<Response>>();
+                for (int i = 0; i < 100; i++) {
+                    futures.add(client.sendAsync(cp, request("/" + i), executor));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    Assertions.assertEquals("/" + i, new String(futures.get(i).get(5, TimeUnit.SECONDS).body()));
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testConnectionTelemetry() throws Exception {
+        try (var server = new TestServer(NioHttpClientTest::echoUri)) {
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var connection = cp.borrow();
+            client.send(connection, request("/a"));
+            client.send(connection, request("/bb"));
+            cp.release(connection);
+            Assertions.assertSame(connection, cp.borrow()); // same handle, no copy per borrow
+            var requestBytes = "GET /a HTTP/1.1\r\nHost: localhost\r\n\r\n".length() * 2 + 1;
+            var responseBytes = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n/a".length() * 2 + 1;
+            var snapshot = connection.snapshot();
+            Assertions.assertEquals(2, snapshot.borrowCounter());
+            Assertions.assertEquals(2, snapshot.requests());
+            Assertions.assertEquals(requestBytes, snapshot.bytesOut());
+            Assertions.assertEquals(responseBytes, snapshot.bytesIn());
+            Assertions.assertNull(snapshot.lastError());
+            connection.socket().shutdownOutput();
+            Assertions.assertThrows(IOException.class, () -> client.send(connection, request("/c")));
+            Assertions.assertNotNull(connection.lastError());
+            Assertions.assertEquals(2, snapshot.requests()); // snapshot is unaffected
+        }
+    }
+
+    @Test
+    public void testListenerMetrics() throws Exception {
+        try (var server = new TestServer(NioHttpClientTest::echoUri)) {
+            var metrics = new MetricsListener();
+            var cp = new ConnectionPool(PoolConfig.builder()
+                    .remoteAddress(server.address())
+                    .connectTimeout(1_000)
+                    .socketTimeout(5_000)
+                    .idleTimeout(10_000)
+                    .maxLifetime(1)
+                    .listener(metrics)
+                    .threadFactory(Thread::new)
+                    .build());
+            var client = new HttpClient(ClientConfig.builder()
+                    .bufferSize(4_096)
+                    .bufferPoolCapacity(16)
+                    .listener(metrics)
+                    .build());
+            var connection = cp.borrow();
+            client.send(connection, request("/a"));
+            client.send(connection, request("/bbb"));
+            Thread.sleep(5);
+            cp.release(connection); // past max lifetime
+            Assertions.assertEquals(1, metrics.connect().count());
+            Assertions.assertEquals(2, metrics.firstByte().count());
+            Assertions.assertEquals(2, metrics.headers().count());
+            Assertions.assertEquals(2, metrics.response().count());
+            Assertions.assertEquals(4, metrics.bodySize().max());
+            Assertions.assertEquals(1, metrics.evictions());
+            Assertions.assertEquals(0, metrics.failures());
+            Assertions.assertTrue(metrics.response().percentile(50) >= metrics.headers().percentile(0));
+        }
+    }
+
+    @Test
+    public void testGzipResponseDecoded() throws Exception {
+        var body = ContentDecoderTest.text(20_000);
+        var gzip = ContentDecoderTest.gzip(body);
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            String head;
+            while ((head = TestServer.readRequestHead(is)) != null) {
+                var offered = head.contains("Accept-Encoding: gzip, deflate\r\n");
+                var payload = offered ? gzip : body;
+                os.write(("HTTP/1.1 200 OK\r\nContent-Length: " + payload.length
+                        + (offered ? "\r\nContent-Encoding: gzip" : "") + "\r\n\r\n").getBytes());
+                os.write(payload);
+            }
+        })) {
+            var cp = localPool(server);
+            var decoder = new ContentDecoder(1 << 20, 4);
+            var client = new HttpClient(ClientConfig.builder()
+                    .bufferSize(4_096)
+                    .bufferPoolCapacity(16)
+                    .decoder(decoder)
+                    .build());
+            var connection = cp.borrow();
+            var response = client.send(connection, request("/"));
+            Assertions.assertNull(response.header("Content-Encoding")); // describes the wire, not the decoded body
+            Assertions.assertNull(response.header("Content-Length"));
+            Assertions.assertArrayEquals(body, response.body());
+            var streamed = client.stream(connection, request("/"), cp);
+            Assertions.assertTrue(streamed.headers().stream().noneMatch(h -> h.name().startsWith("Content-")));
+            try (var in = streamed.body()) {
+                Assertions.assertArrayEquals(body, in.readAllBytes());
+            }
+            Assertions.assertEquals(1, cp.idle()); // fully decoded stream returned the connection
+            Assertions.assertFalse(connection.socket().isClosed());
+            var plain = new HttpClient(4_096).send(cp.borrow(), request("/"));
+            Assertions.assertNull(plain.header("Content-Encoding"));
+            Assertions.assertArrayEquals(body, plain.body());
+        }
+    }
+
+    @Test
+    public void testStreamingBodilessGzipResponse() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            while (TestServer.readRequestHead(is) != null) {
+                os.write("HTTP/1.1 200 OK\r\nContent-Length: 100\r\nContent-Encoding: gzip\r\n\r\n".getBytes());
+            }
+        })) {
+            var cp = localPool(server);
+            var client = new HttpClient(ClientConfig.builder()
+                    .bufferSize(4_096)
+                    .bufferPoolCapacity(16)
+                    .decoder(new ContentDecoder(1 << 20, 4))
+                    .build());
+            var head = new Request("HEAD", "/", List.of(new Header("Host", "localhost")), new byte[0]);
+            try (var response = client.stream(cp.borrow(), head, cp)) {
+                Assertions.assertEquals(200, response.status());
+                Assertions.assertEquals(-1, response.body().read());
+            }
+            Assertions.assertEquals(1, cp.idle());
+        }
+    }
+
+    @Test
+    public void testDeadlineAbortsSlowDrip() throws Exception {
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            TestServer.readRequestHead(is);
+            os.write("HTTP/1.1 200 OK\r\nContent-Length: 100\r\n\r\n".getBytes());
+            for (int i = 0; i < 100; i++) { // each byte well within the socket timeout
+                os.write('a');
+                os.flush();
+                Thread.sleep(50);
+            }
+        }); var wheel = new TimerWheel(5, 64, Thread::new)) {
+            wheel.start();
+            var cp = localPool(server);
+            var client = new HttpClient(4_096);
+            var start = System.nanoTime();
+            var e = Assertions.assertThrows(SocketTimeoutException.class,
+                    () -> client.send(cp, request("/"), new Deadline(wheel, 300)));
+            Assertions.assertEquals("Deadline exceeded", e.getMessage());
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            Assertions.assertEquals(1, cp.discards());
+        }
+    }
+
+    @Test
+    public void testDeadlineBoundsPoolWait() throws Exception {
+        try (var server = new TestServer(NioHttpClientTest::echoUri);
+             var wheel = new TimerWheel(5, 64, Thread::new)) {
+            wheel.start();
+            var cp = ConnectionPoolTest.boundedPool(server, 1, 10_000);
+            var held = cp.borrow();
+            var start = System.nanoTime();
+            var e = Assertions.assertThrows(SocketTimeoutException.class,
+                    () -> new HttpClient(4_096).send(cp, request("/"), new Deadline(wheel, 200)));
+            Assertions.assertEquals("Deadline exceeded", e.getMessage());
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            cp.release(held);
+        }
+    }
+
+    @Test
+    public void testCancelAbortsRead() throws Exception {
+        var headSent = new CountDownLatch(1);
+        try (var server = new TestServer(socket -> {
+            TestServer.readRequestHead(socket.getInputStream());
+            socket.getOutputStream().write("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\n".getBytes());
+            headSent.countDown();
+            Thread.sleep(5_000);
+        }); var wheel = new TimerWheel(5, 64, Thread::new)) {
+            wheel.start();
+            var cp = localPool(server);
+            var executor = Executors.newSingleThreadExecutor();
+            try {
+                var deadline = new Deadline(wheel, 10_000);
+                var future = new HttpClient(4_096).sendAsync(cp, request("/"), executor, deadline);
+                Assertions.assertTrue(headSent.await(5, TimeUnit.SECONDS));
+                future.cancel(true);
+                Assertions.assertFalse(deadline.isActive());
+                Assertions.assertFalse(deadline.cancel()); // already cancelled
+                executor.shutdown();
+                Assertions.assertTrue(executor.awaitTermination(2, TimeUnit.SECONDS)); // blocked read was aborted
+                Assertions.assertEquals(1, cp.discards());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    static Request request(String uri) {
+        return new Request("GET", uri, List.of(new Header("Host", "localhost")), new byte[0]);
+    }
+
+    static ConnectionPool localPool(TestServer server) {
+        return new ConnectionPool(
+                SocketFactory.getDefault(),
+                null,
+                server.address(),
+                1_000,
+                5_000,
+                10_000,
+                1_000,
+                Thread::new);
+    }
+
 }
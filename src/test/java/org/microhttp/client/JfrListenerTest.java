@@ -0,0 +1,36 @@
+package org.microhttp.client;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+
+public class JfrListenerTest {
+
+    @Test
+    public void testEventsRecorded() throws Exception {
+        var listener = new JfrListener();
+        var file = Files.createTempFile("microhttp", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("org.microhttp.client.Connect").withoutThreshold();
+            recording.enable("org.microhttp.client.PoolWait").withoutThreshold();
+            recording.start();
+            listener.connected(new HostPort("localhost", 8080), 1_000);
+            listener.poolWait(new HostPort("localhost", 8080), 2_000);
+            recording.stop();
+            recording.dump(file);
+            var events = RecordingFile.readAllEvents(file);
+            Assertions.assertEquals(2, events.size());
+            var connect = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("org.microhttp.client.Connect"))
+                    .findFirst()
+                    .orElseThrow();
+            Assertions.assertEquals(1_000, connect.getDuration("connect").toNanos());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class LoadBalancingPoolTest {
+
+    @Test
+    public void testRoundRobin() throws IOException {
+        try (var first = new TestServer(address(1), 0, ConnectionPoolTest::drain);
+             var second = new TestServer(address(2), first.port(), ConnectionPoolTest::drain);
+             var third = new TestServer(address(3), first.port(), ConnectionPoolTest::drain)) {
+            var pool = pool(host -> new InetAddress[]{address(1), address(2), address(3)}, first.port(),
+                    LoadBalancingPool.Policy.ROUND_ROBIN, 60_000);
+            var remotes = new HashSet<HostPort>();
+            for (int i = 0; i < 3; i++) {
+                var c = pool.borrow();
+                remotes.add(c.remoteAddress());
+                pool.release(c);
+            }
+            Assertions.assertEquals(Set.of(first.address(), second.address(), third.address()), remotes);
+        }
+    }
+
+    @Test
+    public void testLeastOutstanding() throws IOException {
+        try (var first = new TestServer(address(1), 0, ConnectionPoolTest::drain);
+             var second = new TestServer(address(2), first.port(), ConnectionPoolTest::drain)) {
+            var pool = pool(host -> new InetAddress[]{address(1), address(2)}, first.port(),
+                    LoadBalancingPool.Policy.LEAST_OUTSTANDING, 60_000);
+            var a = pool.borrow();
+            var b = pool.borrow();
+            Assertions.assertNotEquals(a.remoteAddress(), b.remoteAddress());
+            pool.release(b);
+            Assertions.assertEquals(0, pool.outstanding(b.remoteAddress()));
+            Assertions.assertEquals(1, pool.outstanding(a.remoteAddress()));
+            Assertions.assertEquals(b.remoteAddress(), pool.borrow().remoteAddress());
+        }
+    }
+
+    @Test
+    public void testPowerOfTwoChoices() throws IOException {
+        try (var first = new TestServer(address(1), 0, ConnectionPoolTest::drain);
+             var second = new TestServer(address(2), first.port(), ConnectionPoolTest::drain)) {
+            var pool = pool(host -> new InetAddress[]{address(1), address(2)}, first.port(),
+                    LoadBalancingPool.Policy.POWER_OF_TWO_CHOICES, 60_000);
+            var a = pool.borrow();
+            pool.release(a); // measured, the unmeasured endpoint now looks cheaper
+            Assertions.assertNotEquals(a.remoteAddress(), pool.borrow().remoteAddress());
+        }
+    }
+
+    @Test
+    public void testFailingEndpointEjected() throws IOException {
+        try (var server = new TestServer(address(1), 0, ConnectionPoolTest::drain)) {
+            var pool = pool(host -> new InetAddress[]{address(1), address(4)}, server.port(),
+                    LoadBalancingPool.Policy.ROUND_ROBIN, 60_000);
+            var failures = 0;
+            for (int i = 0; i < 6; i++) {
+                try {
+                    pool.release(pool.borrow());
+                } catch (IOException e) {
+                    failures++;
+                }
+            }
+            Assertions.assertEquals(1, failures);
+            Assertions.assertTrue(pool.ejected(new HostPort("127.0.0.4", server.port())));
+            Assertions.assertFalse(pool.ejected(server.address()));
+        }
+    }
+
+    @Test
+    public void testReResolve() throws IOException {
+        try (var first = new TestServer(address(1), 0, ConnectionPoolTest::drain);
+             var second = new TestServer(address(2), first.port(), ConnectionPoolTest::drain)) {
+            var addresses = new AtomicReference<>(new InetAddress[]{address(1)});
+            var pool = pool(host -> addresses.get(), first.port(), LoadBalancingPool.Policy.ROUND_ROBIN, 0);
+            Assertions.assertEquals(first.address(), pool.borrow().remoteAddress());
+            addresses.set(new InetAddress[]{address(2)});
+            Assertions.assertEquals(second.address(), pool.borrow().remoteAddress());
+            Assertions.assertEquals(List.of(second.address()), pool.endpoints());
+        }
+    }
+
+    @Test
+    public void testResolveFailureKeepsEndpoints() throws Exception {
+        try (var server = new TestServer(address(1), 0, ConnectionPoolTest::drain)) {
+            var failing = new AtomicBoolean();
+            var resolves = new AtomicInteger();
+            Resolver resolver = host -> {
+                resolves.incrementAndGet();
+                if (failing.get()) {
+                    throw new UnknownHostException(host);
+                }
+                return new InetAddress[]{address(1)};
+            };
+            var pool = pool(resolver, server.port(), LoadBalancingPool.Policy.ROUND_ROBIN, 50);
+            pool.release(pool.borrow());
+            failing.set(true);
+            Thread.sleep(60);
+            pool.release(pool.borrow()); // refresh fails, the known endpoint still serves
+            pool.release(pool.borrow());
+            Assertions.assertEquals(2, resolves.get()); // the failed refresh waits out another ttl
+            Assertions.assertEquals(List.of(server.address()), pool.endpoints());
+            var unresolved = pool(resolver, server.port(), LoadBalancingPool.Policy.ROUND_ROBIN, 50);
+            Assertions.assertThrows(UnknownHostException.class, unresolved::borrow);
+        }
+    }
+
+    static InetAddress address(int last) {
+        try {
+            return InetAddress.getByAddress(new byte[]{127, 0, 0, (byte) last});
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    static LoadBalancingPool pool(Resolver resolver, int port, LoadBalancingPool.Policy policy, int resolveTtl) {
+        return new LoadBalancingPool(
+                PoolConfig.builder()
+                        .resolver(resolver)
+                        .remoteAddress(new HostPort("backend", port))
+                        .connectTimeout(1_000)
+                        .socketTimeout(5_000)
+                        .idleTimeout(10_000)
+                        .threadFactory(Thread::new)
+                        .build(),
+                policy,
+                resolveTtl,
+                1,
+                60_000);
+    }
+
+}
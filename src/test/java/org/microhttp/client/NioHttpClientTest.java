@@ -0,0 +1,91 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class NioHttpClientTest {
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        try (var server = new TestServer(NioHttpClientTest::echoUri);
+             var client = newClient(server)) {
+            client.start();
+            var futures = new ArrayList<CompletableFuture<Response>>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(client.send(HttpClientTest.request("/" + i)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                var response = futures.get(i).get(5, TimeUnit.SECONDS);
+                Assertions.assertEquals(200, response.status());
+                Assertions.assertEquals("/" + i, new String(response.body()));
+            }
+        }
+    }
+
+    @Test
+    public void testConnectionReuse() throws Exception {
+        try (var server = new TestServer(NioHttpClientTest::echoUri);
+             var client = newClient(server)) {
+            client.start();
+            for (int i = 0; i < 10; i++) {
+                var response = client.send(HttpClientTest.request("/" + i)).get(5, TimeUnit.SECONDS);
+                Assertions.assertEquals("/" + i, new String(response.body()));
+            }
+            Assertions.assertEquals(2, server.connections()); // one per event loop
+        }
+    }
+
+    @Test
+    public void testConnectionClosedByServer() throws Exception {
+        try (var server = new TestServer(socket -> TestServer.readRequestHead(socket.getInputStream()));
+             var client = newClient(server)) {
+            client.start();
+            var future = client.send(HttpClientTest.request("/"));
+            var e = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(EOFException.class, e.getCause());
+        }
+    }
+
+    @Test
+    public void testResolvedOnCallingThread() throws Exception {
+        var threads = new CopyOnWriteArrayList<Thread>();
+        try (var server = new TestServer(NioHttpClientTest::echoUri);
+             var client = new NioHttpClient(host -> {
+                 threads.add(Thread.currentThread());
+                 return Resolver.SYSTEM.resolve(host);
+             }, null, server.address(), 1, 4_096, 5_000, 5_000, 10_000, Thread::new)) {
+            client.start();
+            var response = client.send(HttpClientTest.request("/a")).get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals("/a", new String(response.body()));
+            Assertions.assertEquals(List.of(Thread.currentThread()), threads);
+        }
+    }
+
+    static void echoUri(java.net.Socket socket) throws IOException {
+        var is = socket.getInputStream();
+        var os = socket.getOutputStream();
+        String head;
+        while ((head = TestServer.readRequestHead(is)) != null) {
+            var uri = head.split(" ")[1];
+            os.write(("HTTP/1.1 200 OK\r\nContent-Length: " + uri.length() + "\r\n\r\n" + uri).getBytes());
+        }
+    }
+
+    static NioHttpClient newClient(TestServer server) throws IOException {
+        return new NioHttpClient(null, server.address(), 2, 4_096, 5_000, 5_000, 10_000, r -> {
+            var t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+}
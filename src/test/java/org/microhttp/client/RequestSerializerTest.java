@@ -0,0 +1,183 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class RequestSerializerTest {
+
+    @Test
+    public void testBytes() throws IOException {
+        var request = new Request(
+                "POST",
+                "/resource",
+                List.of(new Header("Host", "localhost"), new Header("Content-Length", "11")),
+                "hello world".getBytes());
+        var expected = """
+                POST /resource HTTP/1.1\r
+                Host: localhost\r
+                Content-Length: 11\r
+                \r
+                hello world""";
+        Assertions.assertEquals(expected, write(request, 16));
+    }
+
+    @Test
+    public void testDirectBuffer() throws IOException {
+        var buffer = ByteBuffer.allocateDirect(11).put("hello world".getBytes()).flip();
+        var request = new Request("PUT", "/", List.of(), RequestBody.of(buffer));
+        Assertions.assertEquals("PUT / HTTP/1.1\r\n\r\nhello world", write(request, 8));
+        Assertions.assertEquals(11, buffer.remaining());
+    }
+
+    @Test
+    public void testStreamWithLength() throws IOException {
+        var body = RequestBody.of(new ByteArrayInputStream("hello world!".getBytes()), 11);
+        var request = new Request("PUT", "/", List.of(), body);
+        Assertions.assertEquals("PUT / HTTP/1.1\r\n\r\nhello world", write(request, 8));
+    }
+
+    @Test
+    public void testStreamChunked() throws IOException {
+        var body = RequestBody.of(new ByteArrayInputStream("hello world".getBytes()));
+        var request = new Request("POST", "/", List.of(new Header("Host", "localhost")), body);
+        var expected = """
+                POST / HTTP/1.1\r
+                Host: localhost\r
+                Transfer-Encoding: chunked\r
+                \r
+                6\r
+                hello \r
+                5\r
+                world\r
+                0\r
+                \r
+                """;
+        Assertions.assertEquals(expected, write(request, 18));
+    }
+
+    @Test
+    public void testStreamChunkedSmallScratch() throws IOException {
+        var body = RequestBody.of(new ByteArrayInputStream("hello".getBytes()));
+        var request = new Request("PUT", "/", List.of(), body);
+        Assertions.assertEquals("PUT / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n0\r\n\r\n",
+                write(request, 12));
+    }
+
+    @Test
+    public void testStreamChunkedZeroReads() throws IOException {
+        var data = new ByteArrayInputStream("ok".getBytes());
+        var body = RequestBody.of(new InputStream() { // answers every bulk read with 0, as a non-blocking source might
+            @Override
+            public int read() {
+                return data.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return data.available() == 0 ? -1 : 0;
+            }
+        });
+        var request = new Request("PUT", "/", List.of(), body);
+        Assertions.assertEquals(
+                "PUT / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n1\r\no\r\n1\r\nk\r\n0\r\n\r\n",
+                write(request, 64));
+    }
+
+    @Test
+    public void testFileRegion() throws IOException {
+        var file = Files.createTempFile("request", ".txt");
+        try {
+            Files.writeString(file, "xxhello worldxx");
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                var request = new Request("PUT", "/", List.of(), RequestBody.of(channel, 2, 11));
+                Assertions.assertEquals("PUT / HTTP/1.1\r\n\r\nhello world", write(request, 64));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTemplate() throws IOException {
+        var template = new RequestTemplate("POST", List.of(new Header("Host", "localhost"), new Header("X-Fixed", "1")));
+        var request = template.request(
+                "/items?id=7",
+                List.of(new Header("X-Trace", "abc")),
+                RequestBody.of("hello".getBytes()));
+        var expected = """
+                POST /items?id=7 HTTP/1.1\r
+                Host: localhost\r
+                X-Fixed: 1\r
+                X-Trace: abc\r
+                Content-Length: 5\r
+                \r
+                hello""";
+        Assertions.assertEquals(expected, write(request, 8));
+        Assertions.assertEquals("GET / HTTP/1.1\r\nHost: h\r\n\r\n",
+                write(new RequestTemplate("GET", List.of(new Header("Host", "h"))).request("/"), 64));
+    }
+
+    @Test
+    public void testTemplateContentLengthNotDuplicated() throws IOException {
+        var template = new RequestTemplate("PUT", List.of());
+        var request = template.request("/", List.of(new Header("content-length", "2")), RequestBody.of("ok".getBytes()));
+        Assertions.assertEquals("PUT / HTTP/1.1\r\ncontent-length: 2\r\n\r\nok", write(request, 64));
+        var streamed = template.request("/", List.of(), RequestBody.of(new ByteArrayInputStream("ok".getBytes())));
+        Assertions.assertEquals("PUT / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n2\r\nok\r\n0\r\n\r\n",
+                write(streamed, 64));
+    }
+
+    @Test
+    public void testTemplateTransferEncoding() throws IOException {
+        var template = new RequestTemplate("PUT", List.of(new Header("Transfer-Encoding", "chunked")));
+        var bytes = template.request("/", List.of(), RequestBody.of("hello".getBytes()));
+        Assertions.assertEquals("PUT / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n0\r\n\r\n",
+                write(bytes, 64));
+        var streamed = template.request("/", List.of(), RequestBody.of(new ByteArrayInputStream("ok".getBytes())));
+        Assertions.assertEquals("PUT / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n2\r\nok\r\n0\r\n\r\n",
+                write(streamed, 64));
+        var encoded = new ByteArrayOutputStream();
+        RequestSerializer.write(bytes, encoded, null, new byte[64], false, new ContentEncoder(1, 0, 1));
+        Assertions.assertFalse(encoded.toString().contains("Content-Encoding")); // framing fixed by the template
+    }
+
+    @Test
+    public void testLatin1HeaderEncoding() throws IOException {
+        var request = new Request("GET", "/", List.of(new Header("X-Name", "caf\u00e9")), new byte[0]);
+        var out = new ByteArrayOutputStream();
+        RequestSerializer.write(request, out, null, new byte[4]);
+        Assertions.assertArrayEquals(
+                "GET / HTTP/1.1\r\nX-Name: caf\u00e9\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1),
+                out.toByteArray());
+        var snowman = new Request("GET", "/", List.of(new Header("X-Name", "\u2603")), new byte[0]);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> write(snowman, 64));
+    }
+
+    @Test
+    public void testUtf8Uri() throws IOException {
+        var request = new Request("GET", "/caf\u00e9/\u4e2d", List.of(), new byte[0]);
+        var out = new ByteArrayOutputStream();
+        RequestSerializer.write(request, out, null, new byte[8]);
+        Assertions.assertArrayEquals(
+                "GET /caf\u00e9/\u4e2d HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8),
+                out.toByteArray());
+    }
+
+    private static String write(Request request, int scratchSize) throws IOException {
+        var out = new ByteArrayOutputStream();
+        RequestSerializer.write(request, out, null, new byte[scratchSize]);
+        return out.toString();
+    }
+
+}
@@ -20,6 +20,7 @@ public class ResponseParserTest {
         Assertions.assertTrue(rp.parse());
         var res = rp.response();
         Assertions.assertEquals(List.of(new Header("date", "Wed, 17 May 2023 16:07:46 GMT")), res.headers());
+        Assertions.assertEquals("Wed, 17 May 2023 16:07:46 GMT", res.header("Date"));
         Assertions.assertEquals(204, res.status());
         Assertions.assertEquals("", res.reason());
         Assertions.assertArrayEquals(new byte[0], res.body());
@@ -49,4 +50,137 @@ public class ResponseParserTest {
         Assertions.assertArrayEquals("hello world".getBytes(), res.body());
     }
 
+    @Test
+    public void testLargeContentLengthNotPreallocated() {
+        var bt = new ByteTokenizer();
+        bt.add("HTTP/1.1 200 OK\r\nContent-Length: 2000000000\r\n\r\nabc".getBytes());
+        var rp = new ResponseParser(bt);
+        Assertions.assertFalse(rp.parse()); // would need a 2 GB array if sized by the header
+        Assertions.assertEquals(0, bt.available());
+        Assertions.assertEquals(2_000_000_000L - 3, rp.remaining());
+    }
+
+    @Test
+    public void testTrailersSkipped() {
+        var response = """
+                HTTP/1.1 200 OK\r
+                transfer-encoding: chunked\r
+                \r
+                5\r
+                hello\r
+                0\r
+                A: 1\r
+                B: 2\r
+                \r
+                HTTP/1.1 204 No Content\r
+                \r
+                """.getBytes();
+        var bt = new ByteTokenizer();
+        bt.add(response);
+        var first = new ResponseParser(bt);
+        Assertions.assertTrue(first.parse());
+        Assertions.assertArrayEquals("hello".getBytes(), first.response().body());
+        var second = new ResponseParser(bt);
+        Assertions.assertTrue(second.parse());
+        Assertions.assertEquals(204, second.response().status());
+        Assertions.assertEquals(0, bt.size());
+    }
+
+    @Test
+    public void testParseConsecutiveResponses() {
+        var response = """
+                HTTP/1.1 200 OK\r
+                transfer-encoding: chunked\r
+                \r
+                6\r
+                hello \r
+                5\r
+                world\r
+                0\r
+                \r
+                HTTP/1.1 200 OK\r
+                content-length: 3\r
+                \r
+                abc""".getBytes();
+        var bt = new ByteTokenizer();
+        for (var b : response) { // one byte per read
+            bt.add(new byte[]{b});
+        }
+        var first = new ResponseParser(bt);
+        Assertions.assertTrue(first.parse());
+        Assertions.assertArrayEquals("hello world".getBytes(), first.response().body());
+        var second = new ResponseParser(bt);
+        Assertions.assertTrue(second.parse());
+        Assertions.assertArrayEquals("abc".getBytes(), second.response().body());
+        Assertions.assertEquals(0, bt.size());
+    }
+
+    @Test
+    public void testReadBodyIncrementally() {
+        var bt = new ByteTokenizer();
+        bt.add("HTTP/1.1 200 OK\r\ncontent-length: 11\r\n\r\nhello".getBytes());
+        var rp = new ResponseParser(bt);
+        Assertions.assertTrue(rp.parseHeaders());
+        Assertions.assertEquals(200, rp.response().status());
+        var body = new byte[16];
+        Assertions.assertEquals(5, rp.readBody(body, 0, body.length));
+        Assertions.assertEquals(0, rp.readBody(body, 5, body.length - 5));
+        bt.add(" world".getBytes());
+        Assertions.assertEquals(6, rp.readBody(body, 5, body.length - 5));
+        Assertions.assertEquals(-1, rp.readBody(body, 11, body.length - 11));
+        Assertions.assertEquals("hello world", new String(body, 0, 11));
+    }
+
+    @Test
+    public void testBodyUntilClose() {
+        var bt = new ByteTokenizer();
+        bt.add("HTTP/1.1 200 OK\r\n\r\nhello".getBytes());
+        var rp = new ResponseParser(bt);
+        Assertions.assertFalse(rp.parse());
+        Assertions.assertFalse(rp.keepAlive());
+        bt.add(" world".getBytes());
+        Assertions.assertFalse(rp.parse());
+        Assertions.assertTrue(rp.endOfInput()); // connection closed by the server
+        Assertions.assertTrue(rp.parse());
+        Assertions.assertArrayEquals("hello world".getBytes(), rp.response().body());
+    }
+
+    @Test
+    public void testEndOfInputCutsShortFramedBody() {
+        var bt = new ByteTokenizer();
+        bt.add("HTTP/1.1 200 OK\r\ncontent-length: 11\r\n\r\nhello".getBytes());
+        var rp = new ResponseParser(bt);
+        Assertions.assertFalse(rp.parse());
+        Assertions.assertFalse(rp.endOfInput());
+    }
+
+    @Test
+    public void testKeepAlive() {
+        Assertions.assertTrue(keepAlive("HTTP/1.1 200 OK\r\ncontent-length: 0\r\n\r\n"));
+        Assertions.assertFalse(keepAlive("HTTP/1.1 200 OK\r\nConnection: close\r\ncontent-length: 0\r\n\r\n"));
+        Assertions.assertFalse(keepAlive("HTTP/1.1 200 OK\r\nconnection: Upgrade, Close\r\ncontent-length: 0\r\n\r\n"));
+        Assertions.assertFalse(keepAlive("HTTP/1.0 200 OK\r\ncontent-length: 0\r\n\r\n"));
+        Assertions.assertTrue(keepAlive("HTTP/1.0 200 OK\r\nConnection: keep-alive\r\ncontent-length: 0\r\n\r\n"));
+        Assertions.assertTrue(keepAlive("HTTP/1.1 204 No Content\r\n\r\n"));
+        Assertions.assertTrue(keepAlive("HTTP/1.1 304 Not Modified\r\n\r\n"));
+    }
+
+    @Test
+    public void testHeadResponseHasNoBody() {
+        var bt = new ByteTokenizer();
+        bt.add("HTTP/1.1 200 OK\r\ncontent-length: 11\r\n\r\n".getBytes());
+        var rp = new ResponseParser(bt, true);
+        Assertions.assertTrue(rp.parse());
+        Assertions.assertTrue(rp.keepAlive());
+        Assertions.assertArrayEquals(new byte[0], rp.response().body());
+    }
+
+    private static boolean keepAlive(String response) {
+        var bt = new ByteTokenizer();
+        bt.add(response.getBytes());
+        var rp = new ResponseParser(bt);
+        Assertions.assertTrue(rp.parse());
+        return rp.keepAlive();
+    }
+
 }
@@ -0,0 +1,132 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RetryingClientTest {
+
+    @Test
+    public void testStaleConnectionRetried() throws Exception {
+        try (var server = new TestServer(RetryingClientTest::oneResponse)) {
+            var pool = HttpClientTest.localPool(server);
+            var client = retrying(pool, 2, 1_000);
+            Assertions.assertEquals("/a", new String(client.send(HttpClientTest.request("/a")).body()));
+            Thread.sleep(100); // server closes the idle connection
+            Assertions.assertEquals("/b", new String(client.send(HttpClientTest.request("/b")).body()));
+            Assertions.assertEquals(1, client.staleFailures());
+            Assertions.assertEquals(1, client.retries());
+            Assertions.assertEquals(2, server.connections());
+        }
+    }
+
+    @Test
+    public void testNonIdempotentNotRetried() throws Exception {
+        try (var server = new TestServer(RetryingClientTest::oneResponse)) {
+            var pool = HttpClientTest.localPool(server);
+            var client = retrying(pool, 2, 1_000);
+            client.send(HttpClientTest.request("/a"));
+            Thread.sleep(100);
+            var post = new Request("POST", "/b", List.of(new Header("Host", "localhost")), new byte[0]);
+            Assertions.assertThrows(IOException.class, () -> client.send(post));
+            Assertions.assertEquals(1, client.staleFailures());
+            Assertions.assertEquals(0, client.retries());
+        }
+    }
+
+    @Test
+    public void testRetryBudgetExhausted() throws Exception {
+        try (var server = new TestServer(RetryingClientTest::oneResponse)) {
+            var pool = HttpClientTest.localPool(server);
+            var client = new RetryingClient(new HttpClient(4_096), pool, 2, 0, 0, 0.0, 0, 0, 0, null);
+            client.send(HttpClientTest.request("/a"));
+            Thread.sleep(100);
+            Assertions.assertThrows(IOException.class, () -> client.send(HttpClientTest.request("/b")));
+            Assertions.assertEquals(1, client.budgetExhausted());
+            Assertions.assertEquals(0, client.retries());
+        }
+    }
+
+    @Test
+    public void testHedgeWins() throws Exception {
+        var slowed = new AtomicBoolean();
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            String head;
+            while ((head = TestServer.readRequestHead(is)) != null) {
+                var uri = head.split(" ")[1];
+                if (uri.equals("/slow") && slowed.compareAndSet(false, true)) {
+                    Thread.sleep(2_000);
+                }
+                os.write(("HTTP/1.1 200 OK\r\nContent-Length: " + uri.length() + "\r\n\r\n" + uri).getBytes());
+            }
+        })) {
+            var executor = Executors.newCachedThreadPool(r -> {
+                var t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            });
+            var pool = HttpClientTest.localPool(server);
+            var client = new RetryingClient(new HttpClient(4_096), pool, 2, 0, 0, 0.1, 10, 99.0, 10, executor);
+            for (int i = 0; i < 64; i++) { // threshold is recomputed every 64 sends
+                client.send(HttpClientTest.request("/" + i));
+            }
+            var start = System.nanoTime();
+            Assertions.assertEquals("/slow", new String(client.send(HttpClientTest.request("/slow")).body()));
+            Assertions.assertTrue(System.nanoTime() - start < 1_000_000_000L);
+            Assertions.assertEquals(1, client.hedges());
+            Assertions.assertEquals(1, client.hedgeWins());
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHedgeSkippedWithoutBudget() throws Exception {
+        var slowed = new AtomicBoolean();
+        try (var server = new TestServer(socket -> {
+            var is = socket.getInputStream();
+            var os = socket.getOutputStream();
+            String head;
+            while ((head = TestServer.readRequestHead(is)) != null) {
+                var uri = head.split(" ")[1];
+                if (uri.equals("/slow") && slowed.compareAndSet(false, true)) {
+                    Thread.sleep(200);
+                }
+                os.write(("HTTP/1.1 200 OK\r\nContent-Length: " + uri.length() + "\r\n\r\n" + uri).getBytes());
+            }
+        })) {
+            var executor = Executors.newCachedThreadPool(r -> {
+                var t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            });
+            var pool = HttpClientTest.localPool(server);
+            var client = new RetryingClient(new HttpClient(4_096), pool, 2, 0, 0, 0.0, 0, 99.0, 10, executor);
+            for (int i = 0; i < 64; i++) {
+                client.send(HttpClientTest.request("/" + i));
+            }
+            Assertions.assertEquals("/slow", new String(client.send(HttpClientTest.request("/slow")).body()));
+            Assertions.assertEquals(0, client.hedges());
+            Assertions.assertEquals(1, server.connections()); // the slow attempt was waited out on its own connection
+            executor.shutdownNow();
+        }
+    }
+
+    // answers the first request, then closes the connection without notice
+    private static void oneResponse(Socket socket) throws IOException {
+        var head = TestServer.readRequestHead(socket.getInputStream());
+        var uri = head.split(" ")[1];
+        socket.getOutputStream().write(("HTTP/1.1 200 OK\r\nContent-Length: " + uri.length() + "\r\n\r\n" + uri).getBytes());
+    }
+
+    private static RetryingClient retrying(ConnectionPool pool, int maxRetries, int minRetriesPerSecond) {
+        return new RetryingClient(new HttpClient(4_096), pool, maxRetries, 10, 100, 0.1, minRetriesPerSecond, 0, 0, null);
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.microhttp.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TestServer implements AutoCloseable {
+
+    interface Handler {
+        void handle(Socket socket) throws Exception;
+    }
+
+    private final ServerSocket serverSocket;
+    private final Handler handler;
+    private final AtomicInteger connections;
+
+    TestServer(Handler handler) throws IOException {
+        this(InetAddress.getLoopbackAddress(), 0, handler);
+    }
+
+    TestServer(InetAddress address, int port, Handler handler) throws IOException {
+        this.handler = handler;
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(address, port), 1_024);
+        connections = new AtomicInteger();
+        var thread = new Thread(this::acceptLoop);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    HostPort address() {
+        return new HostPort(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort());
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    int connections() {
+        return connections.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var socket = serverSocket.accept();
+                connections.incrementAndGet();
+                var thread = new Thread(() -> {
+                    try (socket) {
+                        handler.handle(socket);
+                    } catch (Exception ignore) {}
+                });
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    // reads a request head up to and including the empty line, null on end of stream
+    static String readRequestHead(InputStream is) throws IOException {
+        var out = new ByteArrayOutputStream();
+        int b;
+        while ((b = is.read()) >= 0) {
+            out.write(b);
+            var s = out.toString();
+            if (s.endsWith("\r\n\r\n")) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+}
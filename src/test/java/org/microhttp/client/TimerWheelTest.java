@@ -0,0 +1,55 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TimerWheelTest {
+
+    @Test
+    public void testFiresAfterDeadline() throws InterruptedException {
+        try (var wheel = new TimerWheel(5, 8, Thread::new)) {
+            wheel.start();
+            var latch = new CountDownLatch(1);
+            var fired = new AtomicLong();
+            var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100); // beyond one revolution
+            wheel.schedule(() -> {
+                fired.set(System.nanoTime());
+                latch.countDown();
+            }, deadline);
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(fired.get() - deadline >= 0);
+        }
+    }
+
+    @Test
+    public void testCancelled() throws InterruptedException {
+        try (var wheel = new TimerWheel(5, 8, Thread::new)) {
+            wheel.start();
+            var count = new AtomicInteger();
+            var latch = new CountDownLatch(1);
+            var now = System.nanoTime();
+            wheel.schedule(count::incrementAndGet, now + TimeUnit.MILLISECONDS.toNanos(20)).cancel();
+            wheel.schedule(latch::countDown, now + TimeUnit.MILLISECONDS.toNanos(50));
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, count.get());
+        }
+    }
+
+    @Test
+    public void testOverdueFiresOnNextTick() throws InterruptedException {
+        try (var wheel = new TimerWheel(5, 8, Thread::new)) {
+            wheel.start();
+            var latch = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                wheel.schedule(latch::countDown, System.nanoTime() - i);
+            }
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.microhttp.client;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+
+public class TlsConfigTest {
+
+    @Test
+    public void testSessionResumed() throws Exception {
+        var context = context();
+        try (var server = new TestServer(socket -> serve(context, socket))) {
+            var tls = new TlsConfig(context(), null, null, 16, 60);
+            var cp = tlsPool(server, tls);
+            var client = new HttpClient(1_024);
+            for (int i = 0; i < 3; i++) {
+                var connection = cp.borrow();
+                Assertions.assertEquals(200, client.send(connection, HttpClientTest.request("/")).status());
+                connection.tryClose(); // force a new handshake on the next borrow
+                cp.release(connection);
+            }
+            Assertions.assertEquals(1, tls.fullHandshakes());
+            Assertions.assertEquals(2, tls.resumedHandshakes());
+            Assertions.assertTrue(tls.handshakeTimeNanos() > 0);
+        }
+    }
+
+    @Test
+    public void testProtocolRestricted() throws Exception {
+        var context = context();
+        try (var server = new TestServer(socket -> serve(context, socket))) {
+            var tls = new TlsConfig(context(), new String[]{"TLSv1.2"}, null, 0, 0);
+            var connection = tlsPool(server, tls).borrow();
+            Assertions.assertEquals("TLSv1.2", ((SSLSocket) connection.socket()).getSession().getProtocol());
+        }
+    }
+
+    @Test
+    public void testHostnameVerified() throws Exception {
+        var context = context();
+        try (var server = new TestServer(socket -> serve(context, socket))) {
+            var tls = new TlsConfig(context(), null, null, 0, 0);
+            var port = server.address().port();
+            var named = tlsPool(new HostPort("localhost", port), tls, Resolver.SYSTEM).borrow();
+            Assertions.assertTrue(((SSLSocket) named.socket()).getSession().isValid());
+            Resolver loopback = host -> new InetAddress[]{InetAddress.getLoopbackAddress()};
+            var other = tlsPool(new HostPort("example.com", port), tls, loopback); // trusted certificate, wrong name
+            Assertions.assertThrows(SSLHandshakeException.class, other::borrow);
+        }
+    }
+
+    static void serve(SSLContext context, Socket socket) throws Exception {
+        var ss = (SSLSocket) context.getSocketFactory().createSocket(socket, null, true); // server mode
+        var in = ss.getInputStream();
+        var out = ss.getOutputStream();
+        while (TestServer.readRequestHead(in) != null) {
+            out.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+    }
+
+    // self-signed localhost certificate, trusted by its own key store
+    static SSLContext context() throws Exception {
+        var password = "password".toCharArray();
+        var keyStore = KeyStore.getInstance("PKCS12");
+        try (var in = TlsConfigTest.class.getResourceAsStream("/localhost.p12")) {
+            keyStore.load(in, password);
+        }
+        var kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, password);
+        var tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        var context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+        return context;
+    }
+
+    static ConnectionPool tlsPool(TestServer server, TlsConfig tls) {
+        return tlsPool(server.address(), tls, Resolver.SYSTEM);
+    }
+
+    static ConnectionPool tlsPool(HostPort remoteAddress, TlsConfig tls, Resolver resolver) {
+        return new ConnectionPool(PoolConfig.builder()
+                .resolver(resolver)
+                .tls(tls)
+                .remoteAddress(remoteAddress)
+                .connectTimeout(1_000)
+                .socketTimeout(5_000)
+                .idleTimeout(10_000)
+                .threadFactory(Thread::new)
+                .build());
+    }
+
+}